@@ -0,0 +1,123 @@
+/* eslint-disable @typescript-eslint/no-explicit-any */
+import * as Actions from "../src/actions";
+import { BridgeCallQueue } from "../src/bridgeQueue";
+import { sendToBridge } from "../src/helpers";
+
+declare var cordova: any;
+
+beforeEach(() => {
+  cordova.exec.mockReset();
+});
+
+test("coalesces calls made in the same tick", async () => {
+  const queue = new BridgeCallQueue(10);
+  const firstCallback = jest.fn();
+  const secondCallback = jest.fn();
+
+  queue.enqueue(firstCallback, "user.getLanguage", null);
+  queue.enqueue(secondCallback, "profile.identify", [
+    { custom_user_id: "foo" },
+  ]);
+  expect(cordova.exec.mock.calls.length).toBe(0);
+
+  await Promise.resolve();
+
+  expect(cordova.exec.mock.calls.length).toBe(1);
+  const [success, , plugin, action, args] = cordova.exec.mock.calls[0];
+  expect(plugin).toBe("Batch");
+  expect(action).toBe("BA_batch");
+  expect(args).toEqual([
+    {
+      calls: [
+        { action: "user.getLanguage", parameters: {} },
+        { action: "profile.identify", parameters: { custom_user_id: "foo" } },
+      ],
+    },
+  ]);
+
+  success(JSON.stringify(["fr", null]));
+  expect(firstCallback).toHaveBeenCalledWith("fr");
+  expect(secondCallback).toHaveBeenCalledWith(undefined);
+});
+
+test("flushes when the size threshold is reached", () => {
+  const queue = new BridgeCallQueue(3);
+
+  queue.enqueue(null, "optIn", null);
+  queue.enqueue(null, "optOut", null);
+  expect(cordova.exec.mock.calls.length).toBe(0);
+  queue.enqueue(null, "optIn", null);
+
+  expect(cordova.exec.mock.calls.length).toBe(1);
+  expect(cordova.exec.mock.calls[0][4][0].calls.length).toBe(3);
+});
+
+test("sends a single call without batching it", () => {
+  const queue = new BridgeCallQueue(10);
+  const callback = jest.fn();
+
+  queue.enqueue(callback, "user.getRegion", null);
+  queue.flush();
+
+  expect(cordova.exec.mock.calls.length).toBe(1);
+  const [success, , , action, args] = cordova.exec.mock.calls[0];
+  expect(action).toBe("BA_user.getRegion");
+  expect(args).toEqual([{}]);
+
+  success("FR");
+  expect(callback).toHaveBeenCalledWith("FR");
+});
+
+test("does not leave callers hanging on a malformed batch reply", () => {
+  const queue = new BridgeCallQueue(10);
+  const callback = jest.fn();
+
+  queue.enqueue(callback, "user.getRegion", null);
+  queue.enqueue(callback, "user.getLanguage", null);
+  queue.flush();
+
+  cordova.exec.mock.calls[0][0]("not json");
+  expect(callback).toHaveBeenCalledTimes(2);
+  expect(callback).toHaveBeenCalledWith(undefined);
+});
+
+describe("sendToBridge on Android", () => {
+  beforeEach(() => {
+    cordova.platformId = "android";
+  });
+
+  afterEach(() => {
+    cordova.platformId = "jest";
+  });
+
+  test("does not make getters wait for network-bound calls", async () => {
+    const languageCallback = jest.fn();
+    const fetchCallback = jest.fn();
+    const regionCallback = jest.fn();
+    const identifierCallback = jest.fn();
+
+    sendToBridge(languageCallback, Actions.User.GetLanguage, null);
+    sendToBridge(fetchCallback, Actions.Inbox.FetchNewNotifications, [
+      { id: "fetcher" },
+    ]);
+    sendToBridge(regionCallback, Actions.User.GetRegion, null);
+    sendToBridge(identifierCallback, Actions.User.GetIdentifier, null);
+
+    await Promise.resolve();
+
+    // The call queued before the fetch is sent first, the ones after it are still batched
+    const actions = cordova.exec.mock.calls.map((call: any[]) => call[3]);
+    expect(actions).toEqual([
+      "BA_user.getLanguage",
+      "BA_inbox.fetchNewNotifications",
+      "BA_batch",
+    ]);
+
+    cordova.exec.mock.calls[0][0]("fr");
+    cordova.exec.mock.calls[2][0](JSON.stringify(["FR", "foo"]));
+    expect(languageCallback).toHaveBeenCalledWith("fr");
+    expect(regionCallback).toHaveBeenCalledWith("FR");
+    expect(identifierCallback).toHaveBeenCalledWith("foo");
+    expect(fetchCallback).not.toHaveBeenCalled();
+  });
+});
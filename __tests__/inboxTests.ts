@@ -84,7 +84,28 @@ function mockedSendToBridge(
       JSON.stringify({ notifications: fakeNotifications, endReached: true })
     );
   } else if (method == InboxAction.GetFetchedNotifications) {
-    callback(JSON.stringify({ notifications: fakeNotifications }));
+    const argObject: any = args[0];
+
+    if (argObject.cursor === 1) {
+      // Delta since the first call: the first notification has been read, the second one deleted
+      callback(
+        JSON.stringify({
+          notifications: [{ ...fakeNotifications[0], isUnread: false }],
+          deletedIDs: ["2"],
+          cursor: 2,
+          full: false,
+        })
+      );
+      return;
+    }
+
+    callback(
+      JSON.stringify({
+        notifications: fakeNotifications,
+        cursor: 1,
+        full: true,
+      })
+    );
   } else if (method == InboxAction.MarkAllAsRead) {
     callback("{}");
   } else if (
@@ -112,7 +133,9 @@ jest.doMock("../src/helpers", () => {
   };
 });
 
+import { invokeModernBridge } from "../src/helpers";
 import { InboxModule } from "../src/modules/inbox";
+import { markInboxFetcherEvicted } from "../src/modules/inbox/inboxFetcher";
 import { BatchSDK } from "../types";
 
 test("can fetch notifications for the current installation ID", async () => {
@@ -180,6 +203,19 @@ test("can mark as deleted", async () => {
   await fetcher.markNotificationAsDeleted(result.notifications[0]);
 });
 
+test("applies fetched notifications deltas", async () => {
+  const fetcher = await new InboxModule().getFetcherForInstallation(
+    MAX_PAGE_SIZE,
+    LIMIT
+  );
+  checkNotificationsContent(await fetcher.getAllFetchedNotifications());
+
+  const notifications = await fetcher.getAllFetchedNotifications();
+  expect(notifications.length).toBe(1);
+  expect(notifications[0].identifier).toBe("1");
+  expect(notifications[0].isUnread).toBe(false);
+});
+
 test("throws if using when disposed", async () => {
   expect.assertions(1);
   const fetcher = await new InboxModule().getFetcherForInstallation(
@@ -194,6 +230,42 @@ test("throws if using when disposed", async () => {
   }
 });
 
+test("throws if the native fetcher was evicted", async () => {
+  const fetcher = await new InboxModule().getFetcherForInstallation(
+    MAX_PAGE_SIZE,
+    LIMIT
+  );
+  markInboxFetcherEvicted("abcdef");
+  await expect(fetcher.fetchNextPage()).rejects.toThrow(
+    "EvictedInboxError: This BatchInboxFetcher has been released by the native SDK"
+  );
+  fetcher.dispose();
+});
+
+test("does not release an evicted fetcher on dispose", async () => {
+  const bridgeMock = invokeModernBridge as jest.Mock;
+
+  const evictedFetcher = await new InboxModule().getFetcherForInstallation(
+    MAX_PAGE_SIZE,
+    LIMIT
+  );
+  markInboxFetcherEvicted("abcdef");
+  bridgeMock.mockClear();
+  evictedFetcher.dispose();
+  expect(bridgeMock).not.toHaveBeenCalled();
+
+  // The eviction is forgotten once disposed: a new fetcher reusing the ID is released as usual
+  const fetcher = await new InboxModule().getFetcherForInstallation(
+    MAX_PAGE_SIZE,
+    LIMIT
+  );
+  bridgeMock.mockClear();
+  fetcher.dispose();
+  expect(bridgeMock).toHaveBeenCalledWith(InboxAction.ReleaseFetcher, {
+    fetcherID: "abcdef",
+  });
+});
+
 const NotificationSource = new InboxModule().NotificationSource;
 
 const fakeNotifications = [
@@ -69,7 +69,13 @@ jest.doMock("../src/helpers", () => {
   };
 });
 
+import { sendToBridgePromise } from "../src/helpers";
 import { UserModule } from "../src/modules/user";
+import {
+  expectUserDataSnapshot,
+  invalidateUserDataSnapshot,
+  setUserDataSnapshot,
+} from "../src/modules/user/userDataSnapshot";
 
 test("it can read back the installation ID", async () => {
   const userModule = new UserModule();
@@ -120,3 +126,49 @@ test("it can read back the custom region", async () => {
 
   expect(await userModule.getRegion()).toBeUndefined();
 });
+
+test("it reads the user data snapshot without calling the bridge", async () => {
+  const userModule = new UserModule();
+  const bridgeMock = sendToBridgePromise as jest.Mock;
+
+  mockedUserGettersShouldReturnUndefined = false;
+
+  expectUserDataSnapshot();
+  setUserDataSnapshot({
+    installationID: "snapshot-installation-id",
+    language: null,
+    tagCollections: { tagCollections: { foo: ["bar"] } },
+  });
+  bridgeMock.mockClear();
+
+  expect(await userModule.getInstallationID()).toBe(
+    "snapshot-installation-id"
+  );
+  expect(await userModule.getLanguage()).toBeUndefined();
+  expect(await userModule.getTagCollections()).toEqual({ foo: ["bar"] });
+  expect(bridgeMock).not.toHaveBeenCalled();
+
+  // Missing values are still read from the bridge
+  expect(await userModule.getRegion()).toBe(expectations.region);
+  expect(bridgeMock).toHaveBeenCalledTimes(1);
+
+  invalidateUserDataSnapshot();
+  expect(await userModule.getInstallationID()).toBe(
+    expectations.installationID
+  );
+  expect(bridgeMock).toHaveBeenCalledTimes(2);
+});
+
+test("it ignores a user data snapshot invalidated before being received", async () => {
+  const userModule = new UserModule();
+
+  mockedUserGettersShouldReturnUndefined = false;
+
+  expectUserDataSnapshot();
+  invalidateUserDataSnapshot();
+  setUserDataSnapshot({ installationID: "stale-installation-id" });
+
+  expect(await userModule.getInstallationID()).toBe(
+    expectations.installationID
+  );
+});
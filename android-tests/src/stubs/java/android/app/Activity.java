@@ -0,0 +1,7 @@
+package android.app;
+
+/**
+ * Stub of Android's Activity: only passed around by the tested classes
+ */
+public class Activity {
+}
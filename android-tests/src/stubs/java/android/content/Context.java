@@ -0,0 +1,12 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * Stub of Android's Context: only the files directory is used by the tested classes
+ */
+public abstract class Context {
+    public abstract Context getApplicationContext();
+
+    public abstract File getFilesDir();
+}
@@ -0,0 +1,59 @@
+package android.os;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stub of Android's Bundle, backed by a map
+ */
+public class Bundle {
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public Set<String> keySet() {
+        return values.keySet();
+    }
+
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+
+    public Object get(String key) {
+        return values.get(key);
+    }
+
+    public String getString(String key) {
+        final Object value = values.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public boolean getBoolean(String key) {
+        final Object value = values.get(key);
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    public Bundle getBundle(String key) {
+        final Object value = values.get(key);
+        return value instanceof Bundle ? (Bundle) value : null;
+    }
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+
+    public void putBundle(String key, Bundle value) {
+        values.put(key, value);
+    }
+}
@@ -0,0 +1,22 @@
+package android.os;
+
+/**
+ * Stub of Android's SystemClock. Time doesn't flow on its own: tests set it.
+ */
+public final class SystemClock {
+    private static volatile long elapsedRealtime = 0;
+
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtime() {
+        return elapsedRealtime;
+    }
+
+    /**
+     * Not part of the Android API: sets the time returned by {@link #elapsedRealtime()}
+     */
+    public static void setElapsedRealtime(long time) {
+        elapsedRealtime = time;
+    }
+}
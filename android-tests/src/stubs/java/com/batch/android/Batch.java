@@ -0,0 +1,16 @@
+package com.batch.android;
+
+/**
+ * Stub of the Batch SDK's entry point, only exposing constants
+ */
+public final class Batch {
+    private Batch() {
+    }
+
+    public static final class Push {
+        public static final String PAYLOAD_KEY = "payload";
+
+        private Push() {
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.batch.android;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Stub of the Batch SDK's event attributes, needed to build the bridge utilities
+ */
+public class BatchEventAttributes {
+    public BatchEventAttributes put(String key, String value) {
+        return this;
+    }
+
+    public BatchEventAttributes put(String key, boolean value) {
+        return this;
+    }
+
+    public BatchEventAttributes put(String key, long value) {
+        return this;
+    }
+
+    public BatchEventAttributes put(String key, double value) {
+        return this;
+    }
+
+    public BatchEventAttributes put(String key, Date value) {
+        return this;
+    }
+
+    public BatchEventAttributes put(String key, URI value) {
+        return this;
+    }
+
+    public BatchEventAttributes put(String key, BatchEventAttributes value) {
+        return this;
+    }
+
+    public BatchEventAttributes putStringList(String key, List<String> value) {
+        return this;
+    }
+
+    public BatchEventAttributes putObjectList(String key, List<BatchEventAttributes> value) {
+        return this;
+    }
+}
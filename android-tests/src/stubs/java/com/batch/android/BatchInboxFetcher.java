@@ -0,0 +1,7 @@
+package com.batch.android;
+
+/**
+ * Stub of the Batch SDK's inbox fetcher, only used as an opaque value
+ */
+public class BatchInboxFetcher {
+}
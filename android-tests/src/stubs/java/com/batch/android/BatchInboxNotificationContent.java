@@ -0,0 +1,61 @@
+package com.batch.android;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Stub of the Batch SDK's inbox notification, built directly by the tests
+ */
+public class BatchInboxNotificationContent {
+    private final String identifier;
+    private final String title;
+    private final String body;
+    private final boolean unread;
+    private final Date date;
+    private final Map<String, String> payload;
+
+    public BatchInboxNotificationContent(String identifier, String title, String body, boolean unread, Date date, Map<String, String> payload) {
+        this.identifier = identifier;
+        this.title = title;
+        this.body = body;
+        this.unread = unread;
+        this.date = date;
+        this.payload = payload;
+    }
+
+    public String getNotificationIdentifier() {
+        return identifier;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isUnread() {
+        return unread;
+    }
+
+    public boolean isSilent() {
+        return body == null;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public BatchNotificationSource getSource() {
+        return BatchNotificationSource.CAMPAIGN;
+    }
+
+    public Map<String, String> getRawPayload() {
+        return payload;
+    }
+
+    public boolean hasLandingMessage() {
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package com.batch.android;
+
+/**
+ * Stub of the Batch SDK's notification source
+ */
+public enum BatchNotificationSource {
+    UNKNOWN,
+    CAMPAIGN,
+    TRANSACTIONAL,
+    TRIGGER
+}
@@ -0,0 +1,39 @@
+package com.batch.android;
+
+import android.os.Bundle;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stub of the Batch SDK's push payload, counting how many times payloads are parsed.
+ * A payload has a landing message if its "com.batch" value contains an "ld" key.
+ */
+public class BatchPushPayload {
+    public static final AtomicInteger parseCount = new AtomicInteger(0);
+
+    private final boolean hasLandingMessage;
+
+    private BatchPushPayload(boolean hasLandingMessage) {
+        this.hasLandingMessage = hasLandingMessage;
+    }
+
+    public static BatchPushPayload payloadFromBundle(Bundle extras) throws ParsingException {
+        parseCount.incrementAndGet();
+        final Bundle payload = extras.getBundle(Batch.Push.PAYLOAD_KEY);
+        final String batchData = payload != null ? payload.getString("com.batch") : null;
+        if (batchData == null) {
+            throw new ParsingException("Missing Batch data");
+        }
+        return new BatchPushPayload(batchData.contains("\"ld\""));
+    }
+
+    public boolean hasLandingMessage() {
+        return hasLandingMessage;
+    }
+
+    public static class ParsingException extends Exception {
+        public ParsingException(String message) {
+            super(message);
+        }
+    }
+}
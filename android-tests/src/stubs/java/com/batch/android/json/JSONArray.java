@@ -0,0 +1,17 @@
+package com.batch.android.json;
+
+/**
+ * Stub of the Batch SDK's JSONArray: the plugin only writes already built instances as is
+ */
+public class JSONArray {
+    private final String json;
+
+    public JSONArray(String json) {
+        this.json = json;
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+}
@@ -0,0 +1,10 @@
+package com.batch.android.json;
+
+/**
+ * Stub of the Batch SDK's JSON exception
+ */
+public class JSONException extends Exception {
+    public JSONException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.batch.android.json;
+
+/**
+ * Stub of the Batch SDK's JSONObject: the plugin only writes already built instances as is
+ */
+public class JSONObject {
+    public static final Object NULL = new Object() {
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
+    private final String json;
+
+    public JSONObject(String json) {
+        this.json = json;
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+}
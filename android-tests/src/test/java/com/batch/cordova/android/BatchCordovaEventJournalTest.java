@@ -0,0 +1,225 @@
+package com.batch.cordova.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BatchCordovaEventJournalTest {
+    private static final int THROUGHPUT_EVENT_COUNT = 1_000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ExecutorService journalExecutor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        journalExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testEventsAreDrainedInOrder() throws Exception {
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(journalFile(), journalExecutor);
+        journal.append("{\"event\":1}");
+        journal.append("{\"event\":\"2 é😀\"}");
+        journal.append("{\"event\":3}");
+
+        assertEquals(List.of("{\"event\":1}", "{\"event\":\"2 é😀\"}", "{\"event\":3}"), drain(journal));
+        assertEquals(Collections.emptyList(), drain(journal));
+    }
+
+    @Test
+    public void testAppendsDontBlockTheCaller() throws Exception {
+        final List<Runnable> pendingTasks = new ArrayList<>();
+        final File file = journalFile();
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(file, pendingTasks::add);
+
+        journal.append("{\"event\":1}");
+        assertEquals(1, pendingTasks.size());
+        assertEquals(0, file.length());
+
+        pendingTasks.remove(0).run();
+        assertTrue(file.length() > 0);
+    }
+
+    @Test
+    public void testEventsSurviveARestart() throws Exception {
+        final File file = journalFile();
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(file, Runnable::run);
+        journal.append("{\"event\":1}");
+        journal.append("{\"event\":2}");
+
+        assertEquals(List.of("{\"event\":1}", "{\"event\":2}"), drain(new BatchCordovaEventJournal(file, Runnable::run)));
+    }
+
+    @Test
+    public void testEventsAreKeptUntilTheListenerReturns() throws Exception {
+        final File file = journalFile();
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(file, Runnable::run);
+        journal.append("{\"event\":1}");
+        journal.append("{\"event\":2}");
+
+        // The process died while the events were being delivered
+        try {
+            journal.drain(events -> {
+                throw new IllegalStateException("Process died");
+            });
+            fail("The listener should have thrown");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        assertEquals(List.of("{\"event\":1}", "{\"event\":2}"), drain(new BatchCordovaEventJournal(file, Runnable::run)));
+    }
+
+    @Test
+    public void testEventsAppendedWhileDrainingAreKept() throws Exception {
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(journalFile(), Runnable::run);
+        journal.append("{\"event\":1}");
+
+        final List<String> drainedEvents = new ArrayList<>();
+        journal.drain(events -> {
+            drainedEvents.addAll(events);
+            // Delivering failed, and the event was journaled again
+            journal.append("{\"event\":2}");
+        });
+
+        assertEquals(List.of("{\"event\":1}"), drainedEvents);
+        assertEquals(List.of("{\"event\":2}"), drain(journal));
+    }
+
+    @Test
+    public void testOldEventsAreDropped() throws Exception {
+        final AtomicLong currentTime = new AtomicLong(1_700_000_000_000L);
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(journalFile(), Runnable::run, currentTime::get);
+        journal.append("{\"event\":1}");
+        currentTime.addAndGet(BatchCordovaEventJournal.MAX_EVENT_AGE_MS);
+        journal.append("{\"event\":2}");
+        currentTime.addAndGet(1);
+
+        assertEquals(List.of("{\"event\":2}"), drain(journal));
+        assertEquals(Collections.emptyList(), drain(journal));
+    }
+
+    @Test
+    public void testRecoversFromARecordCutDuringItsContent() throws Exception {
+        final File file = journalFile();
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(file, Runnable::run);
+        journal.append("{\"event\":1}");
+        journal.append("{\"event\":2}");
+        journal.append("{\"event\":3}");
+
+        // The process died while writing the third record
+        truncate(file, file.length() - 4);
+        assertRecovered(file);
+    }
+
+    @Test
+    public void testRecoversFromARecordCutDuringItsHeader() throws Exception {
+        final File file = journalFile();
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(file, Runnable::run);
+        journal.append("{\"event\":1}");
+        journal.append("{\"event\":2}");
+        final long validLength = file.length();
+        journal.append("{\"event\":3}");
+
+        truncate(file, validLength + 3);
+        assertRecovered(file);
+    }
+
+    @Test
+    public void testRecoversFromACorruptedRecord() throws Exception {
+        final File file = journalFile();
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(file, Runnable::run);
+        journal.append("{\"event\":1}");
+        journal.append("{\"event\":2}");
+        journal.append("{\"event\":3}");
+
+        // The last record's length was written, but its content was not flushed
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(file.length() - 2);
+            randomAccessFile.write(0);
+        }
+        assertRecovered(file);
+    }
+
+    @Test
+    public void testJournalSizeIsBounded() throws Exception {
+        final File file = journalFile();
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(file, Runnable::run);
+        final String event = "{\"payload\":\"" + "x".repeat(1000) + "\"}";
+        final int eventCount = (int) (BatchCordovaEventJournal.MAX_SIZE / event.length()) + 10;
+        for (int i = 0; i < eventCount; i++) {
+            journal.append(event);
+        }
+
+        assertTrue(file.length() <= BatchCordovaEventJournal.MAX_SIZE);
+        final List<String> events = drain(journal);
+        assertTrue(events.size() < eventCount);
+        assertEquals(event, events.get(events.size() - 1));
+    }
+
+    @Test
+    public void testReplayThroughput() throws Exception {
+        final BatchCordovaEventJournal journal = new BatchCordovaEventJournal(journalFile(), journalExecutor);
+        final List<String> appendedEvents = new ArrayList<>(THROUGHPUT_EVENT_COUNT);
+        for (int i = 0; i < THROUGHPUT_EVENT_COUNT; i++) {
+            appendedEvents.add("{\"action\":\"_dispatchPush\",\"payload\":{\"id\":" + i + ",\"alert\":\"Push number " + i + " with some text\"}}");
+        }
+
+        final long appendStartTime = System.nanoTime();
+        for (String event : appendedEvents) {
+            journal.append(event);
+        }
+        final long appendMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - appendStartTime);
+
+        final long drainStartTime = System.nanoTime();
+        final List<String> drainedEvents = drain(journal);
+        final long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStartTime);
+
+        assertEquals(appendedEvents, drainedEvents);
+        System.out.println("BatchCordovaEventJournal: " + THROUGHPUT_EVENT_COUNT + " appends took " + appendMicros
+                + "us on the calling thread, writing and replaying them took " + drainMillis + "ms");
+    }
+
+    private void assertRecovered(File file) throws Exception {
+        final BatchCordovaEventJournal recoveredJournal = new BatchCordovaEventJournal(file, Runnable::run);
+        // Appending after the recovery must not leave the new event behind the corrupted tail
+        recoveredJournal.append("{\"event\":4}");
+        assertEquals(List.of("{\"event\":1}", "{\"event\":2}", "{\"event\":4}"), drain(recoveredJournal));
+    }
+
+    private File journalFile() throws IOException {
+        return new File(temporaryFolder.newFolder(), "events.journal");
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(length);
+        }
+    }
+
+    private static List<String> drain(BatchCordovaEventJournal journal) throws Exception {
+        final CompletableFuture<List<String>> events = new CompletableFuture<>();
+        journal.drain(events::complete);
+        return events.get(30, TimeUnit.SECONDS);
+    }
+}
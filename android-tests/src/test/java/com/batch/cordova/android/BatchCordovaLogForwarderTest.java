@@ -0,0 +1,193 @@
+package com.batch.cordova.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchCordovaLogForwarderTest {
+    private static final int BENCHMARK_LOG_COUNT = 1_000_000;
+
+    @Test
+    public void testLinesAreFilteredByLevel() {
+        final RecordingOutput output = new RecordingOutput(true);
+        final ManualScheduler scheduler = new ManualScheduler();
+        final BatchCordovaLogForwarder forwarder = new BatchCordovaLogForwarder(output, scheduler);
+        forwarder.setMinimumLevel(BatchCordovaLogForwarder.Level.WARNING);
+
+        forwarder.log(BatchCordovaLogForwarder.Level.VERBOSE, "Batch", "Verbose", null);
+        forwarder.log(BatchCordovaLogForwarder.Level.DEBUG, "Batch", "Debug", null);
+        forwarder.log(BatchCordovaLogForwarder.Level.INFO, "Batch", "Info", null);
+        forwarder.log(BatchCordovaLogForwarder.Level.WARNING, "Batch", "Warning", null);
+        forwarder.log(BatchCordovaLogForwarder.Level.ERROR, "Batch", "Error", null);
+        scheduler.runAll();
+
+        assertEquals(List.of(List.of("Batch - Warning", "Batch - Error")), output.sentLines);
+
+        forwarder.setMinimumLevel(BatchCordovaLogForwarder.Level.NONE);
+        forwarder.log(BatchCordovaLogForwarder.Level.ERROR, "Batch", "Ignored", new Exception());
+        assertTrue(scheduler.tasks.isEmpty());
+    }
+
+    @Test
+    public void testLinesAreBufferedUntilTheOutputIsReady() {
+        final RecordingOutput output = new RecordingOutput(false);
+        final ManualScheduler scheduler = new ManualScheduler();
+        final BatchCordovaLogForwarder forwarder = new BatchCordovaLogForwarder(output, scheduler);
+
+        forwarder.log(BatchCordovaLogForwarder.Level.INFO, "Batch", "First", null);
+        forwarder.log(BatchCordovaLogForwarder.Level.INFO, "Batch", "Second", new IllegalStateException("Failure"));
+        assertEquals(1, scheduler.tasks.size());
+        scheduler.runAll();
+        assertTrue(output.sentLines.isEmpty());
+
+        output.ready = true;
+        forwarder.scheduleFlush();
+        scheduler.runAll();
+        assertEquals(List.of(List.of("Batch - First", "Batch - Second - java.lang.IllegalStateException: Failure")), output.sentLines);
+
+        // Nothing left to send
+        forwarder.scheduleFlush();
+        assertTrue(scheduler.tasks.isEmpty());
+    }
+
+    @Test
+    public void testOverflowingLinesAreCounted() {
+        final RecordingOutput output = new RecordingOutput(false);
+        final ManualScheduler scheduler = new ManualScheduler();
+        final BatchCordovaLogForwarder forwarder = new BatchCordovaLogForwarder(output, scheduler);
+
+        for (int i = 0; i < BatchCordovaLogForwarder.BUFFER_CAPACITY + 5; i++) {
+            forwarder.log(BatchCordovaLogForwarder.Level.DEBUG, "Batch", "Line " + i, null);
+        }
+        scheduler.runAll();
+
+        output.ready = true;
+        forwarder.scheduleFlush();
+        scheduler.runAll();
+        assertEquals(1, output.sentLines.size());
+        assertEquals(BatchCordovaLogForwarder.BUFFER_CAPACITY, output.sentLines.get(0).size());
+        assertEquals("Batch - Line 0", output.sentLines.get(0).get(0));
+        assertEquals(List.of(5), output.droppedCounts);
+
+        // The count is reset once reported, and the buffer accepts lines again
+        forwarder.log(BatchCordovaLogForwarder.Level.DEBUG, "Batch", "After", null);
+        scheduler.runAll();
+        assertEquals(List.of("Batch - After"), output.sentLines.get(1));
+        assertEquals(List.of(5, 0), output.droppedCounts);
+    }
+
+    @Test
+    public void testShutdownStopsTheFlushThread() {
+        final RecordingOutput output = new RecordingOutput(true);
+        final ManualScheduler scheduler = new ManualScheduler();
+        final BatchCordovaLogForwarder forwarder = new BatchCordovaLogForwarder(output, scheduler);
+
+        forwarder.shutdown();
+        assertTrue(scheduler.isShutdown());
+
+        // The SDK may still log through a destroyed plugin
+        forwarder.log(BatchCordovaLogForwarder.Level.ERROR, "Batch", "After shutdown", null);
+        assertTrue(scheduler.tasks.isEmpty());
+    }
+
+    @Test
+    public void testLoggingThroughput() throws InterruptedException {
+        // Without a listener, lines are buffered then dropped
+        final BatchCordovaLogForwarder withoutListener = new BatchCordovaLogForwarder(new RecordingOutput(false));
+        // Warm up
+        logCallsPerSecond(withoutListener);
+        final long withoutListenerRate = logCallsPerSecond(withoutListener);
+        withoutListener.shutdown();
+
+        // With a listener, lines are flushed in the background while logging
+        final AtomicInteger receivedLines = new AtomicInteger(0);
+        final AtomicInteger droppedLines = new AtomicInteger(0);
+        final CountDownLatch allLinesAccountedFor = new CountDownLatch(1);
+        final BatchCordovaLogForwarder withListener = new BatchCordovaLogForwarder(new BatchCordovaLogForwarder.Output() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void send(@NonNull List<String> lines, int droppedCount) {
+                if (receivedLines.addAndGet(lines.size()) + droppedLines.addAndGet(droppedCount) == BENCHMARK_LOG_COUNT) {
+                    allLinesAccountedFor.countDown();
+                }
+            }
+        });
+        final long withListenerRate = logCallsPerSecond(withListener);
+        assertTrue("Some lines were neither sent nor counted as dropped", allLinesAccountedFor.await(30, TimeUnit.SECONDS));
+        withListener.shutdown();
+
+        System.out.println("BatchCordovaLogForwarder: " + withoutListenerRate + " log calls/s without a JavaScript listener, "
+                + withListenerRate + " log calls/s with one (" + receivedLines.get() + " lines sent, "
+                + droppedLines.get() + " dropped)");
+    }
+
+    private static long logCallsPerSecond(BatchCordovaLogForwarder forwarder) {
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_LOG_COUNT; i++) {
+            forwarder.log(BatchCordovaLogForwarder.Level.DEBUG, "Batch", "Benchmark line", null);
+        }
+        final long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+        return BENCHMARK_LOG_COUNT * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    private static class RecordingOutput implements BatchCordovaLogForwarder.Output {
+        final List<List<String>> sentLines = new ArrayList<>();
+
+        final List<Integer> droppedCounts = new ArrayList<>();
+
+        volatile boolean ready;
+
+        RecordingOutput(boolean ready) {
+            this.ready = ready;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void send(@NonNull List<String> lines, int droppedCount) {
+            sentLines.add(lines);
+            droppedCounts.add(droppedCount);
+        }
+    }
+
+    /**
+     * Scheduler that only runs its tasks when asked to, ignoring their delay
+     */
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        ManualScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            tasks.add(command);
+            return null;
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.batch.cordova.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.os.Bundle;
+
+import com.batch.android.Batch;
+import com.batch.android.BatchPushPayload;
+import com.batch.android.json.JSONException;
+import com.batch.cordova.android.interop.JSONHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class BatchCordovaPushEventsTest {
+    private static final int BENCHMARK_PUSH_COUNT = 100_000;
+
+    @Before
+    public void setUp() {
+        BatchPushPayload.parseCount.set(0);
+    }
+
+    @Test
+    public void testLandingMessageFlagSkipsThePayloadParsing() throws JSONException {
+        final Bundle extras = pushExtras(true);
+        extras.putBoolean(BatchCordovaPushEvents.EXTRA_HAS_LANDING_MESSAGE, false);
+
+        final Map<?, ?> event = parse(BatchCordovaPushEvents.serialize(extras, false));
+        assertEquals(0, BatchPushPayload.parseCount.get());
+        // The flag given by the push service is trusted
+        assertEquals(false, event.get("hasLandingMessage"));
+        assertEquals(false, event.get("didStartApp"));
+        assertEquals("_dispatchPush", event.get("action"));
+    }
+
+    @Test
+    public void testPayloadIsParsedWithoutTheLandingMessageFlag() throws JSONException {
+        final Map<?, ?> event = parse(BatchCordovaPushEvents.serialize(pushExtras(true), true));
+        assertEquals(1, BatchPushPayload.parseCount.get());
+        assertEquals(true, event.get("hasLandingMessage"));
+        assertEquals(true, event.get("didStartApp"));
+
+        final Map<?, ?> payload = (Map<?, ?>) event.get("payload");
+        assertEquals("Hello", payload.get("msg"));
+        // Non string values are sent as strings
+        assertEquals("true", payload.get("flag"));
+    }
+
+    @Test
+    public void testExtrasWithoutAPushAreIgnored() {
+        assertNull(BatchCordovaPushEvents.serialize(null, false));
+        assertNull(BatchCordovaPushEvents.serialize(new Bundle(), false));
+
+        final Bundle extras = new Bundle();
+        extras.putString("other", "value");
+        assertNull(BatchCordovaPushEvents.serialize(extras, false));
+        extras.putBundle(Batch.Push.PAYLOAD_KEY, new Bundle());
+        assertNull(BatchCordovaPushEvents.serialize(extras, false));
+        assertEquals(0, BatchPushPayload.parseCount.get());
+    }
+
+    @Test
+    public void testSerializationThroughput() {
+        final Bundle flaggedExtras = pushExtras(false);
+        flaggedExtras.putBoolean(BatchCordovaPushEvents.EXTRA_HAS_LANDING_MESSAGE, false);
+        final Bundle extras = pushExtras(false);
+
+        // Warm up
+        serialize(flaggedExtras, BENCHMARK_PUSH_COUNT);
+        serialize(extras, BENCHMARK_PUSH_COUNT);
+        BatchPushPayload.parseCount.set(0);
+
+        final long flaggedRate = serialize(flaggedExtras, BENCHMARK_PUSH_COUNT);
+        assertEquals(0, BatchPushPayload.parseCount.get());
+        final long parsedRate = serialize(extras, BENCHMARK_PUSH_COUNT);
+        assertEquals(BENCHMARK_PUSH_COUNT, BatchPushPayload.parseCount.get());
+
+        System.out.println("BatchCordovaPushEvents: " + flaggedRate + " events/s with the landing message flag, "
+                + parsedRate + " events/s when parsing the payload");
+    }
+
+    private static long serialize(Bundle extras, int count) {
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            BatchCordovaPushEvents.serialize(extras, false);
+        }
+        final long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+        return count * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Extras of a push, as given by the SDK
+     */
+    private static Bundle pushExtras(boolean withLandingMessage) {
+        final Bundle payload = new Bundle();
+        payload.putString("msg", "Hello");
+        payload.putString("title", "Push title");
+        payload.putString("deeplink", "app://home?tab=news");
+        payload.putString("custom_key", "custom value");
+        payload.putBoolean("flag", true);
+        payload.putString("com.batch", withLandingMessage
+                ? "{\"t\":\"c\",\"l\":\"https://batch.com\",\"i\":\"6y4g8guj-u1586248410433_000000\",\"ld\":{\"kind\":\"alert\"}}"
+                : "{\"t\":\"c\",\"l\":\"https://batch.com\",\"i\":\"6y4g8guj-u1586248410433_000000\"}");
+
+        final Bundle extras = new Bundle();
+        extras.putBundle(Batch.Push.PAYLOAD_KEY, payload);
+        return extras;
+    }
+
+    private static Map<?, ?> parse(String event) throws JSONException {
+        return (Map<?, ?>) JSONHelper.readFirstArrayElement("[" + event + "]");
+    }
+}
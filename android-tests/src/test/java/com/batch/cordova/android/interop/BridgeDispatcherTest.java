@@ -0,0 +1,288 @@
+package com.batch.cordova.android.interop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BridgeDispatcherTest {
+    private static final String[] MIXED_ACTIONS = {
+            "profile.edit",
+            "inbox.fetchNextPage",
+            "user.getLanguage",
+            "push.register",
+            "inbox.markAsRead",
+            "isOptedOut",
+            "profile.track.event",
+            "user.fetch.attributes",
+    };
+
+    private static final int STRESS_CALL_COUNT = 20_000;
+
+    @Test
+    public void testStressMixedActionsKeepLaneOrder() throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            final RecordingHandler handler = new RecordingHandler();
+            final BridgeDispatcher dispatcher = new BridgeDispatcher(pool, handler);
+            final CountDownLatch done = new CountDownLatch(STRESS_CALL_COUNT);
+            final Map<BridgeDispatcher.Lane, List<Integer>> expectedOrder = new EnumMap<>(BridgeDispatcher.Lane.class);
+
+            final long startTime = System.nanoTime();
+            int dispatchedWrites = 0;
+            for (int i = 0; i < STRESS_CALL_COUNT; i++) {
+                final String action = MIXED_ACTIONS[i % MIXED_ACTIONS.length];
+                final BridgeDispatcher.Lane lane = BridgeDispatcher.laneForAction(action);
+                expectedOrder.computeIfAbsent(lane, key -> new ArrayList<>()).add(i);
+                final Map<String, Object> parameters = sequenceParameters(i);
+                parameters.put("writesBefore", dispatchedWrites);
+                if (lane == BridgeDispatcher.Lane.SERIAL) {
+                    dispatchedWrites++;
+                }
+                dispatcher.dispatch(action, parameters, null, null).then(value -> done.countDown());
+            }
+            assertTrue("Dispatched calls did not complete in time", done.await(60, TimeUnit.SECONDS));
+            final long wallTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            System.out.println("BridgeDispatcher: " + STRESS_CALL_COUNT + " mixed calls in " + wallTimeMs + "ms");
+
+            assertEquals(0, handler.overlappingCalls.get());
+            assertEquals(0, handler.readsBeforeWrites.get());
+            assertEquals(expectedOrder.get(BridgeDispatcher.Lane.SERIAL), handler.getCalls(BridgeDispatcher.Lane.SERIAL));
+            assertEquals(expectedOrder.get(BridgeDispatcher.Lane.INBOX), handler.getCalls(BridgeDispatcher.Lane.INBOX));
+            // No ordering guarantee, but every call must have run exactly once
+            final List<Integer> concurrentCalls = handler.getCalls(BridgeDispatcher.Lane.CONCURRENT);
+            Collections.sort(concurrentCalls);
+            assertEquals(expectedOrder.get(BridgeDispatcher.Lane.CONCURRENT), concurrentCalls);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOrderedLaneRecoversFromRejection() {
+        final RecordingHandler handler = new RecordingHandler();
+        final AtomicInteger rejectionsLeft = new AtomicInteger(1);
+        final BridgeDispatcher dispatcher = new BridgeDispatcher(Runnable::run, handler)
+                .setLaneExecutor(BridgeDispatcher.Lane.SERIAL, runnable -> {
+                    if (rejectionsLeft.getAndDecrement() > 0) {
+                        throw new RejectedExecutionException("Busy");
+                    }
+                    runnable.run();
+                });
+
+        final SimplePromise<String> first = dispatcher.dispatch("profile.edit", sequenceParameters(0), null, null);
+        assertEquals(SimplePromise.Status.PENDING, first.getStatus());
+        assertTrue(handler.getCalls(BridgeDispatcher.Lane.SERIAL).isEmpty());
+
+        // The lane must not stay stuck: the rejected call runs first, on the next submission
+        final SimplePromise<String> second = dispatcher.dispatch("profile.edit", sequenceParameters(1), null, null);
+        assertEquals(SimplePromise.Status.RESOLVED, first.getStatus());
+        assertEquals(SimplePromise.Status.RESOLVED, second.getStatus());
+        assertEquals(List.of(0, 1), handler.getCalls(BridgeDispatcher.Lane.SERIAL));
+    }
+
+    @Test
+    public void testConcurrentLaneRejectionResolvesTheCall() {
+        final RecordingHandler handler = new RecordingHandler();
+        final BridgeDispatcher dispatcher = new BridgeDispatcher(Runnable::run, handler)
+                .setLaneExecutor(BridgeDispatcher.Lane.CONCURRENT, runnable -> {
+                    throw new RejectedExecutionException("Shut down");
+                });
+
+        final List<String> results = new ArrayList<>();
+        dispatcher.dispatch("isOptedOut", sequenceParameters(0), null, null).then(results::add);
+        assertEquals(List.of(""), results);
+        assertTrue(handler.getCalls(BridgeDispatcher.Lane.CONCURRENT).isEmpty());
+    }
+
+    @Test
+    public void testReadsWaitForPreviousWrites() {
+        final RecordingHandler handler = new RecordingHandler();
+        final ManualExecutor serialExecutor = new ManualExecutor();
+        final BridgeDispatcher dispatcher = new BridgeDispatcher(Runnable::run, handler)
+                .setLaneExecutor(BridgeDispatcher.Lane.SERIAL, serialExecutor);
+
+        dispatcher.dispatch("profile.identify", sequenceParameters(0), null, null);
+        final SimplePromise<String> identifier = dispatcher.dispatch("user.getIdentifier", sequenceParameters(1), null, null);
+        dispatcher.dispatch("user.getLanguage", sequenceParameters(2), null, null);
+        // Inbox calls don't wait for writes
+        dispatcher.dispatch("inbox.markAsRead", sequenceParameters(3), null, null);
+
+        assertEquals(SimplePromise.Status.PENDING, identifier.getStatus());
+        assertTrue(handler.getCalls(BridgeDispatcher.Lane.CONCURRENT).isEmpty());
+        assertEquals(List.of(3), handler.getCalls(BridgeDispatcher.Lane.INBOX));
+
+        // Both reads are released together once the identify call ran
+        serialExecutor.runNext();
+        assertEquals(List.of(0), handler.getCalls(BridgeDispatcher.Lane.SERIAL));
+        assertEquals(List.of(1, 2), handler.getCalls(BridgeDispatcher.Lane.CONCURRENT));
+        assertEquals(SimplePromise.Status.RESOLVED, identifier.getStatus());
+
+        // With no write pending, reads run right away
+        dispatcher.dispatch("user.getIdentifier", sequenceParameters(4), null, null);
+        assertEquals(List.of(1, 2, 4), handler.getCalls(BridgeDispatcher.Lane.CONCURRENT));
+    }
+
+    @Test
+    public void testReadsOnlyWaitForWritesDispatchedBeforeThem() {
+        final RecordingHandler handler = new RecordingHandler();
+        final ManualExecutor serialExecutor = new ManualExecutor();
+        final BridgeDispatcher dispatcher = new BridgeDispatcher(Runnable::run, handler)
+                .setLaneExecutor(BridgeDispatcher.Lane.SERIAL, serialExecutor);
+
+        dispatcher.dispatch("profile.identify", sequenceParameters(0), null, null);
+        dispatcher.dispatch("user.getIdentifier", sequenceParameters(1), null, null);
+        dispatcher.dispatch("profile.edit", sequenceParameters(2), null, null);
+        dispatcher.dispatch("user.fetch.attributes", sequenceParameters(3), null, null);
+
+        serialExecutor.runNext();
+        assertEquals(List.of(1), handler.getCalls(BridgeDispatcher.Lane.CONCURRENT));
+        serialExecutor.runNext();
+        assertEquals(List.of(1, 3), handler.getCalls(BridgeDispatcher.Lane.CONCURRENT));
+    }
+
+    @Test
+    public void testBatchedCallsKeepLaneOrder() {
+        final RecordingHandler handler = new RecordingHandler();
+        final ManualExecutor serialExecutor = new ManualExecutor();
+        final BridgeDispatcher dispatcher = new BridgeDispatcher(Runnable::run, handler)
+                .setLaneExecutor(BridgeDispatcher.Lane.SERIAL, serialExecutor);
+
+        // A write is pending on the serial lane
+        dispatcher.dispatch("profile.edit", sequenceParameters(0), null, null);
+
+        final Map<String, Object> batchParameters = new HashMap<>();
+        batchParameters.put("calls", List.of(
+                batchedCall("user.getLanguage", 1),
+                batchedCall("inbox.markAsRead", 2),
+                batchedCall("profile.edit", 3),
+                batchedCall("user.getIdentifier", 4)
+        ));
+        final List<String> batchResults = new ArrayList<>();
+        dispatcher.dispatch("batch", batchParameters, null, null).then(batchResults::add);
+        dispatcher.dispatch("inbox.fetchNextPage", sequenceParameters(5), null, null);
+
+        // Batched inbox calls don't wait behind the pending write, reads do
+        assertEquals(List.of(2, 5), handler.getCalls(BridgeDispatcher.Lane.INBOX));
+        assertTrue(handler.getCalls(BridgeDispatcher.Lane.CONCURRENT).isEmpty());
+        assertTrue(handler.getCalls(BridgeDispatcher.Lane.SERIAL).isEmpty());
+
+        // A read batched after a write also waits for it
+        serialExecutor.runNext();
+        assertEquals(List.of(1), handler.getCalls(BridgeDispatcher.Lane.CONCURRENT));
+        assertTrue(batchResults.isEmpty());
+
+        serialExecutor.runNext();
+        assertEquals(List.of(0, 3), handler.getCalls(BridgeDispatcher.Lane.SERIAL));
+        assertEquals(List.of(1, 4), handler.getCalls(BridgeDispatcher.Lane.CONCURRENT));
+        // Results are in call order, whatever order the lanes completed them in
+        assertEquals(List.of("[\"user.getLanguage\",\"inbox.markAsRead\",\"profile.edit\",\"user.getIdentifier\"]"), batchResults);
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        final BridgeDispatcher dispatcher = new BridgeDispatcher(Runnable::run, new RecordingHandler());
+        final Map<String, Object> batchParameters = new HashMap<>();
+        batchParameters.put("calls", List.of());
+
+        final List<String> results = new ArrayList<>();
+        dispatcher.dispatch("batch", batchParameters, null, null).then(results::add);
+        assertEquals(List.of("[]"), results);
+    }
+
+    private static Map<String, Object> batchedCall(String action, int sequence) {
+        final Map<String, Object> call = new HashMap<>();
+        call.put("action", action);
+        call.put("parameters", sequenceParameters(sequence));
+        return call;
+    }
+
+    private static Map<String, Object> sequenceParameters(int sequence) {
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("sequence", sequence);
+        return parameters;
+    }
+
+    /**
+     * Executor that only runs its tasks when asked to
+     */
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            tasks.add(runnable);
+        }
+
+        void runNext() {
+            tasks.remove(0).run();
+        }
+    }
+
+    /**
+     * Records the sequence number of each call per lane, whether calls of an ordered lane overlapped,
+     * and whether reads ran before the writes dispatched before them (given as "writesBefore")
+     */
+    private static class RecordingHandler implements BridgeDispatcher.CallHandler {
+        private final Map<BridgeDispatcher.Lane, List<Integer>> calls = new EnumMap<>(BridgeDispatcher.Lane.class);
+
+        private final Map<BridgeDispatcher.Lane, AtomicInteger> runningCalls = new EnumMap<>(BridgeDispatcher.Lane.class);
+
+        final AtomicInteger overlappingCalls = new AtomicInteger(0);
+
+        final AtomicInteger readsBeforeWrites = new AtomicInteger(0);
+
+        RecordingHandler() {
+            for (BridgeDispatcher.Lane lane : BridgeDispatcher.Lane.values()) {
+                calls.put(lane, new ArrayList<>());
+                runningCalls.put(lane, new AtomicInteger(0));
+            }
+        }
+
+        @Override
+        public SimplePromise<String> call(String action, Map<String, Object> parameters, Callback callback, Activity activity) {
+            final BridgeDispatcher.Lane lane = BridgeDispatcher.laneForAction(action);
+            final AtomicInteger running = runningCalls.get(lane);
+            if (running.incrementAndGet() > 1 && lane != BridgeDispatcher.Lane.CONCURRENT) {
+                overlappingCalls.incrementAndGet();
+            }
+            try {
+                final Object writesBefore = parameters.get("writesBefore");
+                if (lane == BridgeDispatcher.Lane.CONCURRENT && writesBefore != null
+                        && getCalls(BridgeDispatcher.Lane.SERIAL).size() < (Integer) writesBefore) {
+                    readsBeforeWrites.incrementAndGet();
+                }
+                final List<Integer> laneCalls = calls.get(lane);
+                synchronized (laneCalls) {
+                    laneCalls.add((Integer) parameters.get("sequence"));
+                }
+                return SimplePromise.resolved(action);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        List<Integer> getCalls(BridgeDispatcher.Lane lane) {
+            final List<Integer> laneCalls = calls.get(lane);
+            synchronized (laneCalls) {
+                return new ArrayList<>(laneCalls);
+            }
+        }
+    }
+}
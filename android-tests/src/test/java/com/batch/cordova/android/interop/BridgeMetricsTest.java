@@ -0,0 +1,171 @@
+package com.batch.cordova.android.interop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BridgeMetricsTest {
+
+    @Before
+    public void setUp() {
+        BridgeMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        BridgeMetrics.reset();
+    }
+
+    @Test
+    public void testErrorsAreDetectedWithoutParsingResults() {
+        final SimplePromise<String> failure = BridgeUtils.convertModernPromiseToLegacy(SimplePromise.rejected(new Exception("Failure")));
+        BridgeMetrics.recordCall("isOptedOut", System.nanoTime(), failure, false);
+
+        // A successful result that happens to look like an error object
+        final SimplePromise<String> success = BridgeUtils.convertModernPromiseToLegacy(
+                SimplePromise.resolved(Collections.singletonMap("code", -1101)));
+        BridgeMetrics.recordCall("user.getLanguage", System.nanoTime(), success, false);
+
+        // Plain promises are only errors if the call threw
+        BridgeMetrics.recordCall("user.getRegion", System.nanoTime(), SimplePromise.resolved(""), true);
+
+        assertEquals(1L, getActionMetric("isOptedOut", "errors"));
+        assertEquals(0L, getActionMetric("user.getLanguage", "errors"));
+        assertEquals(1L, getActionMetric("user.getRegion", "errors"));
+    }
+
+    @Test
+    public void testCallbacksCanBeRecordedDuringAReset() throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> recorders = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Thread recorder = new Thread(() -> {
+                try {
+                    int iteration = 0;
+                    while (running.get()) {
+                        BridgeMetrics.recordCallback("callback" + (iteration++ % 8), System.nanoTime(), 10);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            recorders.add(recorder);
+            recorder.start();
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            BridgeMetrics.reset();
+        }
+        running.set(false);
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError("Recording a callback failed", failure.get());
+        }
+        BridgeMetrics.recordCallback("callback0", System.nanoTime(), 10);
+        assertTrue(((Map<?, ?>) BridgeMetrics.getSnapshot(null).get("callbacks")).containsKey("callback0"));
+    }
+
+    @Test
+    public void testHistogramBucketsAreLinearUpToTheLimit() {
+        for (long value = 0; value < BridgeMetrics.LatencyHistogram.LINEAR_LIMIT; value++) {
+            assertEquals(value, BridgeMetrics.LatencyHistogram.bucketIndex(value));
+            assertEquals(value, BridgeMetrics.LatencyHistogram.bucketLowerBound((int) value));
+        }
+
+        // Past the limit, each power of two is split in SUB_BUCKETS buckets
+        final int limit = BridgeMetrics.LatencyHistogram.LINEAR_LIMIT;
+        assertEquals(limit, BridgeMetrics.LatencyHistogram.bucketIndex(limit));
+        assertEquals(limit, BridgeMetrics.LatencyHistogram.bucketIndex(limit + 1));
+        assertEquals(limit + 1, BridgeMetrics.LatencyHistogram.bucketIndex(limit + 2));
+        assertEquals(limit + BridgeMetrics.LatencyHistogram.SUB_BUCKETS - 1, BridgeMetrics.LatencyHistogram.bucketIndex(2 * limit - 1));
+    }
+
+    @Test
+    public void testHistogramBucketsAtPowersOfTwo() {
+        int previousIndex = -1;
+        for (int exponent = 4; exponent <= BridgeMetrics.LatencyHistogram.MAX_EXPONENT; exponent++) {
+            final long powerOfTwo = 1L << exponent;
+            final int index = BridgeMetrics.LatencyHistogram.bucketIndex(powerOfTwo);
+            // A power of two starts a bucket, right after the one of the value below it
+            assertEquals(powerOfTwo, BridgeMetrics.LatencyHistogram.bucketLowerBound(index));
+            assertEquals(index - 1, BridgeMetrics.LatencyHistogram.bucketIndex(powerOfTwo - 1));
+            assertTrue(index > previousIndex);
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    public void testHistogramClampsToTheLastBucket() {
+        final int lastIndex = BridgeMetrics.LatencyHistogram.BUCKET_COUNT - 1;
+        final long largestBucketedValue = (1L << (BridgeMetrics.LatencyHistogram.MAX_EXPONENT + 1)) - 1;
+        assertEquals(lastIndex, BridgeMetrics.LatencyHistogram.bucketIndex(largestBucketedValue));
+        assertEquals(lastIndex, BridgeMetrics.LatencyHistogram.bucketIndex(largestBucketedValue + 1));
+        assertEquals(lastIndex, BridgeMetrics.LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        assertTrue(BridgeMetrics.LatencyHistogram.bucketLowerBound(lastIndex) <= largestBucketedValue);
+
+        final BridgeMetrics.LatencyHistogram histogram = new BridgeMetrics.LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(Long.MAX_VALUE, histogram.getSnapshot().get("max"));
+        assertEquals(0L, histogram.getSnapshot().get("p50"));
+        assertEquals(BridgeMetrics.LatencyHistogram.bucketLowerBound(lastIndex), histogram.getSnapshot().get("p99"));
+    }
+
+    @Test
+    public void testHistogramRelativeErrorIsBounded() {
+        // Every value is reported as the lower bound of its bucket, which is within 12.5% of it
+        for (long value = 1; value < 1L << BridgeMetrics.LatencyHistogram.MAX_EXPONENT; value = value * 17 / 16 + 1) {
+            final int index = BridgeMetrics.LatencyHistogram.bucketIndex(value);
+            final long lowerBound = BridgeMetrics.LatencyHistogram.bucketLowerBound(index);
+            assertTrue(lowerBound <= value);
+            assertTrue(BridgeMetrics.LatencyHistogram.bucketLowerBound(index + 1) > value);
+            assertTrue("Error too large for " + value, value - lowerBound <= value * 0.125);
+        }
+    }
+
+    @Test
+    public void testHistogramPercentilesAreWithinTheErrorBound() {
+        final Random random = new Random(42);
+        final BridgeMetrics.LatencyHistogram histogram = new BridgeMetrics.LatencyHistogram();
+        final long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal like latencies, from a few µs to a few seconds
+            values[i] = (long) Math.exp(4 + random.nextGaussian() * 2.5);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        final Map<String, Object> snapshot = histogram.getSnapshot();
+        for (int percentile : new int[]{50, 90, 99}) {
+            final long exactValue = values[(int) Math.ceil(values.length * percentile / 100.0) - 1];
+            final long reportedValue = (Long) snapshot.get("p" + percentile);
+            assertTrue("p" + percentile + " is " + reportedValue + ", expected about " + exactValue,
+                    reportedValue <= exactValue && exactValue - reportedValue <= exactValue * 0.125);
+        }
+        assertEquals(values[values.length - 1], snapshot.get("max"));
+
+        // Nothing recorded
+        assertEquals(0L, BridgeMetrics.LatencyHistogram.valueAtPercentile(new long[BridgeMetrics.LatencyHistogram.BUCKET_COUNT], 0, 99));
+    }
+
+    private static Object getActionMetric(String action, String metric) {
+        final Map<?, ?> actions = (Map<?, ?>) BridgeMetrics.getSnapshot(null).get("actions");
+        return ((Map<?, ?>) actions.get(action)).get(metric);
+    }
+}
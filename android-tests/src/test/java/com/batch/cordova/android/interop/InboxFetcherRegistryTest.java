@@ -0,0 +1,102 @@
+package com.batch.cordova.android.interop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import android.os.SystemClock;
+
+import com.batch.android.BatchInboxFetcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class InboxFetcherRegistryTest {
+
+    @Before
+    public void setUp() {
+        SystemClock.setElapsedRealtime(1_000_000);
+    }
+
+    @After
+    public void tearDown() {
+        SystemClock.setElapsedRealtime(0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFetcherIsEvictedWhenFull() {
+        final InboxFetcherRegistry registry = new InboxFetcherRegistry(3);
+        registry.put("a", new BatchInboxFetcher());
+        registry.put("b", new BatchInboxFetcher());
+        registry.put("c", new BatchInboxFetcher());
+
+        registry.put("d", new BatchInboxFetcher());
+        assertEquals(3, registry.size());
+        assertNull(registry.get("a"));
+        assertEquals(List.of("a"), registry.drainEvictedFetcherIDs());
+
+        registry.put("e", new BatchInboxFetcher());
+        registry.put("f", new BatchInboxFetcher());
+        assertEquals(List.of("b", "c"), registry.drainEvictedFetcherIDs());
+        assertEquals(3, registry.getEvictionCount());
+    }
+
+    @Test
+    public void testGetRefreshesRecency() {
+        final InboxFetcherRegistry registry = new InboxFetcherRegistry(3);
+        final BatchInboxFetcher fetcher = new BatchInboxFetcher();
+        registry.put("a", fetcher);
+        registry.put("b", new BatchInboxFetcher());
+        registry.put("c", new BatchInboxFetcher());
+
+        final InboxFetcherRegistry.Entry entry = registry.get("a");
+        assertNotNull(entry);
+        assertSame(fetcher, entry.fetcher);
+
+        registry.put("d", new BatchInboxFetcher());
+        assertEquals(List.of("b"), registry.drainEvictedFetcherIDs());
+        assertSame(entry, registry.get("a"));
+    }
+
+    @Test
+    public void testIdleFetchersAreEvicted() {
+        final InboxFetcherRegistry registry = new InboxFetcherRegistry();
+        registry.put("idle", new BatchInboxFetcher());
+        registry.put("used", new BatchInboxFetcher());
+
+        SystemClock.setElapsedRealtime(SystemClock.elapsedRealtime() + InboxFetcherRegistry.MAX_IDLE_TIME_MS - 1);
+        assertNotNull(registry.get("used"));
+        assertEquals(2, registry.size());
+
+        SystemClock.setElapsedRealtime(SystemClock.elapsedRealtime() + 1);
+        assertNull(registry.get("idle"));
+        assertNotNull(registry.get("used"));
+        assertEquals(List.of("idle"), registry.drainEvictedFetcherIDs());
+        assertEquals(1, registry.getEvictionCount());
+    }
+
+    @Test
+    public void testEvictedFetcherIDsAreReportedOnce() {
+        final InboxFetcherRegistry registry = new InboxFetcherRegistry(1);
+        registry.put("a", new BatchInboxFetcher());
+        registry.put("b", new BatchInboxFetcher());
+
+        assertEquals(List.of("a"), registry.drainEvictedFetcherIDs());
+        assertEquals(Collections.emptyList(), registry.drainEvictedFetcherIDs());
+
+        // Released fetchers are not reported as evicted
+        registry.remove("b");
+        assertEquals(0, registry.size());
+        assertEquals(Collections.emptyList(), registry.drainEvictedFetcherIDs());
+
+        registry.put("c", new BatchInboxFetcher());
+        registry.put("d", new BatchInboxFetcher());
+        assertEquals(List.of("c"), registry.drainEvictedFetcherIDs());
+        assertEquals(2, registry.getEvictionCount());
+    }
+}
@@ -0,0 +1,198 @@
+package com.batch.cordova.android.interop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.batch.android.BatchInboxNotificationContent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InboxNotificationCacheTest {
+    private static final int BENCHMARK_NOTIFICATION_COUNT = 5_000;
+
+    private static final int PAGE_SIZE = 20;
+
+    private final AtomicInteger serializationCount = new AtomicInteger(0);
+
+    @Test
+    public void testRefetchedNotificationsAreMatchedByIdentifier() {
+        final InboxNotificationCache cache = new InboxNotificationCache();
+        final List<Object> firstResponse = cache.add(notifications(0, 3, true));
+        assertEquals(3, serializationCount.get());
+
+        // The SDK gives new instances for the same notifications
+        cache.reset(notifications(0, 3, true));
+        final List<Object> secondResponse = cache.add(notifications(0, 3, true));
+        assertEquals(3, serializationCount.get());
+        for (int i = 0; i < 3; i++) {
+            assertSame(firstResponse.get(i), secondResponse.get(i));
+        }
+    }
+
+    @Test
+    public void testRefetchedNotificationsWithANewStateAreSerializedAgain() {
+        final InboxNotificationCache cache = new InboxNotificationCache();
+        final Object unread = cache.add(notifications(0, 1, true)).get(0);
+
+        final Object read = cache.add(notifications(0, 1, false)).get(0);
+        assertNotSame(unread, read);
+        assertTrue(read.toString().contains("\"isUnread\":false"));
+        assertEquals(2, serializationCount.get());
+    }
+
+    @Test
+    public void testMarkAsReadSerializesTheNotificationAgain() {
+        final InboxNotificationCache cache = new InboxNotificationCache();
+        final Object unread = cache.add(notifications(0, 2, true)).get(0);
+
+        cache.markAsRead("id-0");
+        final List<?> notifications = (List<?>) cache.getChangesSince(null).get("notifications");
+        assertNotSame(unread, notifications.get(0));
+        assertTrue(notifications.get(0).toString().contains("\"isUnread\":false"));
+        assertTrue(notifications.get(0).toString().contains("\"body\":\"Body of id-0\""));
+        assertTrue(notifications.get(1).toString().contains("\"isUnread\":true"));
+        assertEquals(3, serializationCount.get());
+
+        // Already read: nothing to do
+        cache.markAsRead("id-0");
+        assertEquals(3, serializationCount.get());
+
+        // The SDK now reports the notification as read too: the entry is kept as is
+        final Object read = notifications.get(0);
+        cache.reset(notifications(0, 1, false));
+        assertSame(read, ((List<?>) cache.getChangesSince(null).get("notifications")).get(0));
+        assertEquals(3, serializationCount.get());
+    }
+
+    @Test
+    public void testFetchNewResponseIsReadFromTheResetEntries() {
+        final InboxNotificationCache cache = new InboxNotificationCache();
+        final List<BatchInboxNotificationContent> fetched = notifications(0, 10, true);
+
+        // As done by the inbox bridge: the new notifications are a part of the fetched ones
+        cache.reset(fetched);
+        final List<Object> response = cache.add(fetched.subList(0, 4));
+
+        assertEquals(4, response.size());
+        assertEquals(10, serializationCount.get());
+        final Map<String, Object> changes = cache.getChangesSince(null);
+        assertSame(response.get(0), ((List<?>) changes.get("notifications")).get(0));
+    }
+
+    @Test
+    public void testChangesSinceCursor() {
+        final InboxNotificationCache cache = new InboxNotificationCache();
+        cache.reset(notifications(0, 5, true));
+        final Number cursor = (Number) cache.getChangesSince(null).get("cursor");
+
+        cache.markAsRead("id-1");
+        cache.remove("id-3");
+        Map<String, Object> changes = cache.getChangesSince(cursor);
+        assertEquals(false, changes.get("full"));
+        assertEquals(1, ((List<?>) changes.get("notifications")).size());
+        assertTrue(((List<?>) changes.get("notifications")).get(0).toString().contains("\"id\":\"id-1\""));
+        assertEquals(Collections.singletonList("id-3"), changes.get("deletedIDs"));
+
+        // Nothing changed: adding already cached notifications doesn't move the cursor
+        final Number secondCursor = (Number) changes.get("cursor");
+        cache.add(notifications(0, 1, true));
+        assertEquals(secondCursor, cache.getChangesSince(secondCursor).get("cursor"));
+
+        // A deleted notification fetched again is not reported as deleted anymore
+        cache.add(notifications(3, 1, true));
+        changes = cache.getChangesSince(cursor);
+        assertEquals(Collections.emptyList(), changes.get("deletedIDs"));
+
+        // Cursors from before a reset can't be used for a delta
+        cache.reset(notifications(0, 5, true));
+        assertEquals(true, cache.getChangesSince(cursor).get("full"));
+    }
+
+    @Test
+    public void testSilentNotificationsAreNotSent() {
+        final InboxNotificationCache cache = new InboxNotificationCache();
+        final List<BatchInboxNotificationContent> fetched = new ArrayList<>(notifications(0, 2, true));
+        fetched.add(new BatchInboxNotificationContent("silent", null, null, true, new Date(0), Collections.emptyMap()));
+
+        assertEquals(2, cache.add(fetched).size());
+        assertEquals(2, ((List<?>) cache.getChangesSince(null).get("notifications")).size());
+        assertEquals("silent", cache.getNotification("silent").getNotificationIdentifier());
+    }
+
+    @Test
+    public void testPagingBenchmark() {
+        final InboxNotificationCache cache = new InboxNotificationCache();
+        final List<BatchInboxNotificationContent> allNotifications = notifications(0, BENCHMARK_NOTIFICATION_COUNT, true);
+
+        long startTime = System.nanoTime();
+        int responseSize = 0;
+        cache.reset(allNotifications.subList(0, PAGE_SIZE));
+        responseSize += JSONHelper.toJSONString(cache.add(allNotifications.subList(0, PAGE_SIZE))).length();
+        for (int offset = PAGE_SIZE; offset < BENCHMARK_NOTIFICATION_COUNT; offset += PAGE_SIZE) {
+            responseSize += JSONHelper.toJSONString(cache.add(allNotifications.subList(offset, offset + PAGE_SIZE))).length();
+        }
+        final long pagingMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+        assertEquals(BENCHMARK_NOTIFICATION_COUNT, serializationCount.get());
+
+        startTime = System.nanoTime();
+        final Map<String, Object> changes = cache.getChangesSince(null);
+        final int fullListSize = JSONHelper.toJSONString(changes).length();
+        final long fullListMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+        assertEquals(BENCHMARK_NOTIFICATION_COUNT, ((List<?>) changes.get("notifications")).size());
+
+        // Fetching new notifications refreshes all of them with new instances: nothing is serialized again
+        startTime = System.nanoTime();
+        final List<BatchInboxNotificationContent> refetched = notifications(0, BENCHMARK_NOTIFICATION_COUNT, true);
+        cache.reset(refetched);
+        cache.add(refetched.subList(0, PAGE_SIZE));
+        final long refreshMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+        assertEquals(BENCHMARK_NOTIFICATION_COUNT, serializationCount.get());
+
+        final Number cursor = (Number) cache.getChangesSince(null).get("cursor");
+        cache.markAsRead("id-42");
+        startTime = System.nanoTime();
+        final String delta = JSONHelper.toJSONString(cache.getChangesSince(cursor));
+        final long deltaMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+        assertFalse(delta.contains("id-43"));
+
+        System.out.println("InboxNotificationCache: " + BENCHMARK_NOTIFICATION_COUNT + " notifications in pages of "
+                + PAGE_SIZE + ": paging " + pagingMicros + "us (" + responseSize + " chars), full list "
+                + fullListMicros + "us (" + fullListSize + " chars), refresh " + refreshMicros + "us, delta after a read "
+                + deltaMicros + "us (" + delta.length() + " chars)");
+    }
+
+    private List<BatchInboxNotificationContent> notifications(int start, int count, boolean unread) {
+        final List<BatchInboxNotificationContent> notifications = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            notifications.add(new CountingNotificationContent("id-" + i, unread));
+        }
+        return notifications;
+    }
+
+    /**
+     * Counts how many times notifications are serialized, by counting body reads
+     */
+    private class CountingNotificationContent extends BatchInboxNotificationContent {
+        CountingNotificationContent(String identifier, boolean unread) {
+            super(identifier, "Title " + identifier, "Body of " + identifier, unread, new Date(1_700_000_000_000L),
+                    Collections.singletonMap("key", "value"));
+        }
+
+        @Override
+        public String getBody() {
+            serializationCount.incrementAndGet();
+            return super.getBody();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.batch.cordova.android.interop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.batch.android.json.JSONException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports the bytes allocated per call on the bridge's JSON paths, with realistic payloads:
+ * an inbox page of {@link #INBOX_PAGE_SIZE} notifications, and a tracked event with nested event data.
+ * <p>
+ * Writing: once the thread's builder has grown, a call should only allocate the resulting string
+ * and the map iterators: no intermediate JSON tree and no builder copies. The inbox page checks that
+ * the builder is still reused for large responses.
+ * <p>
+ * Parsing: {@link JSONHelper#readFirstArrayElement(String)} builds the maps and lists it returns,
+ * but should not copy the document or go through an intermediate JSON tree.
+ */
+public class JSONHelperAllocationTest {
+    private static final int INBOX_PAGE_SIZE = 200;
+
+    private static final int WARMUP_ITERATIONS = 2_000;
+
+    private static final int MEASURED_ITERATIONS = 2_000;
+
+    /**
+     * Bytes allocated by a write on top of the resulting string, whatever the payload's size
+     */
+    private static final int MAX_WRITE_OVERHEAD_BYTES = 1024;
+
+    /**
+     * Upper bound of the bytes allocated per char of parsed JSON. The parsed maps, lists, boxed values
+     * and strings take several bytes per char: a copy of the document or a JSON tree would add more than that.
+     */
+    private static final int MAX_PARSE_BYTES_PER_CHAR = 16;
+
+    private com.sun.management.ThreadMXBean threadBean;
+
+    @Before
+    public void setUp() {
+        threadBean = getThreadBean();
+        assumeTrue("Thread allocation measurement is not supported by this JVM", threadBean != null);
+    }
+
+    @Test
+    public void testInboxPageAllocations() throws JSONException {
+        assertAllocations("inbox page of " + INBOX_PAGE_SIZE + " notifications", buildInboxPage());
+    }
+
+    @Test
+    public void testTrackedEventAllocations() throws JSONException {
+        assertAllocations("tracked event with nested event data", buildTrackedEvent());
+    }
+
+    private void assertAllocations(String payloadName, Object payload) throws JSONException {
+        final String json = JSONHelper.toJSONString(payload);
+        // Bridge arguments are sent as an array, of which only the first element is read
+        final String arguments = "[" + json + "]";
+        assertEquals(payload, JSONHelper.readFirstArrayElement(arguments));
+
+        final long writeBytesPerCall = measureBytesPerCall(() -> JSONHelper.toJSONString(payload).length());
+        final long parseBytesPerCall = measureBytesPerCall(() -> {
+            try {
+                return JSONHelper.readFirstArrayElement(arguments) != null ? 1 : 0;
+            } catch (JSONException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        System.out.println("JSONHelper, " + payloadName + " (" + json.length() + " chars): toJSONString allocates "
+                + writeBytesPerCall + " bytes per call, readFirstArrayElement " + parseBytesPerCall + " bytes per call");
+
+        // The payloads are mostly ASCII: the resulting string takes about one byte per char, on top of the
+        // map iterators and the formatting of decimal numbers. Anything well above that means the builder
+        // is no longer reused.
+        assertTrue("toJSONString allocated " + writeBytesPerCall + " bytes per call",
+                writeBytesPerCall < json.length() * 2L + MAX_WRITE_OVERHEAD_BYTES);
+        assertTrue("readFirstArrayElement allocated " + parseBytesPerCall + " bytes per call",
+                parseBytesPerCall < (long) json.length() * MAX_PARSE_BYTES_PER_CHAR);
+    }
+
+    private long measureBytesPerCall(Call call) {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += call.run();
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += call.run();
+        }
+        final long bytesPerCall = (threadBean.getThreadAllocatedBytes(threadId) - startBytes) / MEASURED_ITERATIONS;
+        // Keep the calls from being optimized away
+        assertTrue(checksum > 0);
+        return bytesPerCall;
+    }
+
+    private interface Call {
+        int run();
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+
+    /**
+     * A fetchNextPage response, as built by the inbox bridge
+     */
+    private static Object buildInboxPage() {
+        final List<Object> notifications = new ArrayList<>(INBOX_PAGE_SIZE);
+        for (int i = 0; i < INBOX_PAGE_SIZE; i++) {
+            final Map<String, Object> pushPayload = new HashMap<>();
+            pushPayload.put("msg", "A notification body with \"quotes\" and a\nnew line");
+            pushPayload.put("title", "Title " + i);
+            pushPayload.put("deeplink", "app://products/" + i + "?utm_source=batch");
+            pushPayload.put("com.batch", "{\"t\":\"c\",\"l\":\"https://example.com/" + i + "\",\"i\":\"6y4g8guj-u158624841043" + i + "\",\"od\":{\"n\":\"c1e3f7d0-" + i + "\"}}");
+
+            final Map<String, Object> notification = new HashMap<>();
+            notification.put("id", "6y4g8guj-u158624841043" + i);
+            notification.put("title", "Title " + i);
+            notification.put("body", "A notification body with \"quotes\" and a\nnew line");
+            notification.put("isUnread", i % 2 == 0);
+            notification.put("date", 1_700_000_000_000L + i);
+            notification.put("source", 1);
+            notification.put("payload", pushPayload);
+            notification.put("hasLandingMessage", i % 10 == 0);
+            notifications.add(notification);
+        }
+
+        final Map<String, Object> payload = new HashMap<>();
+        payload.put("notifications", notifications);
+        payload.put("endReached", false);
+        payload.put("foundNewNotifications", true);
+        return payload;
+    }
+
+    /**
+     * The parameters of a profile.track.event call
+     */
+    private static Object buildTrackedEvent() {
+        final List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final Map<String, Object> item = new HashMap<>();
+            item.put("sku", "SKU-" + (1000 + i));
+            item.put("name", "Product n°" + i);
+            item.put("price", 9.99 + i);
+            item.put("quantity", i + 1);
+            item.put("tags", Arrays.asList("summer", "sale", "category-" + i));
+            items.add(item);
+        }
+
+        final Map<String, Object> address = new HashMap<>();
+        address.put("city", "Paris");
+        address.put("zip_code", "75010");
+        address.put("country", "FR");
+
+        final Map<String, Object> shipping = new HashMap<>();
+        shipping.put("method", "express");
+        shipping.put("address", address);
+        shipping.put("date", 1_700_000_000_000L);
+
+        final Map<String, Object> attributes = new HashMap<>();
+        attributes.put("order_id", "c1e3f7d0-2b9a-4c4e-9f1e-7d3a5b2c1e90");
+        attributes.put("total", 74.95);
+        attributes.put("is_first_order", false);
+        attributes.put("items", items);
+        attributes.put("shipping", shipping);
+
+        final Map<String, Object> eventData = new HashMap<>();
+        eventData.put("label", "checkout");
+        eventData.put("tags", Arrays.asList("mobile", "promo-code"));
+        eventData.put("attributes", attributes);
+
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("name", "purchase");
+        parameters.put("event_data", eventData);
+        return parameters;
+    }
+}
@@ -0,0 +1,185 @@
+package com.batch.cordova.android.interop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.batch.android.json.JSONArray;
+import com.batch.android.json.JSONException;
+import com.batch.android.json.JSONObject;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JSONHelperTest {
+
+    @Test
+    public void testPrimitives() {
+        assertEquals("null", JSONHelper.toJSONString(null));
+        assertEquals("null", JSONHelper.toJSONString(JSONObject.NULL));
+        assertEquals("true", JSONHelper.toJSONString(true));
+        assertEquals("42", JSONHelper.toJSONString(42));
+        assertEquals("-9007199254740993", JSONHelper.toJSONString(-9007199254740993L));
+        assertEquals("2", JSONHelper.toJSONString(2.0d));
+        assertEquals("2.5", JSONHelper.toJSONString(2.5f));
+        assertEquals("null", JSONHelper.toJSONString(Double.NaN));
+        assertEquals("null", JSONHelper.toJSONString(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void testStringEscaping() {
+        assertEquals("\"a\\\"b\\\\c\"", JSONHelper.toJSONString("a\"b\\c"));
+        assertEquals("\"\\b\\f\\n\\r\\t\"", JSONHelper.toJSONString("\b\f\n\r\t"));
+        assertEquals("\"\\u0000\\u001f\"", JSONHelper.toJSONString("\u0000\u001f"));
+        // Valid JSON, but would end a JS string literal
+        assertEquals("\"\\u2028\\u2029\"", JSONHelper.toJSONString("\u2028\u2029"));
+        // Only escaped when it could close a script tag
+        assertEquals("\"a/b<\\/script>\"", JSONHelper.toJSONString("a/b</script>"));
+        assertEquals("\"é😀\"", JSONHelper.toJSONString("é😀"));
+    }
+
+    @Test
+    public void testCollections() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("list", Arrays.asList(1, "two", null));
+        map.put("empty", Collections.emptyMap());
+        map.put("nested", Collections.singletonMap("key", false));
+        map.put("1", "non string keys are converted");
+        assertEquals(
+                "{\"list\":[1,\"two\",null],\"empty\":{},\"nested\":{\"key\":false},\"1\":\"non string keys are converted\"}",
+                JSONHelper.toJSONString(map)
+        );
+        assertEquals("[]", JSONHelper.toJSONString(Collections.emptyList()));
+    }
+
+    @Test
+    public void testAlreadySerializedValuesAreWrittenAsIs() {
+        final List<Object> list = Arrays.asList(
+                JSONHelper.SerializedValue.fromJSON("{\"a\":1}"),
+                new JSONObject("{\"b\":2}"),
+                new JSONArray("[3]"),
+                JSONHelper.SerializedValue.of(Collections.singletonMap("c", 4))
+        );
+        assertEquals("[{\"a\":1},{\"b\":2},[3],{\"c\":4}]", JSONHelper.toJSONString(list));
+    }
+
+    @Test
+    public void testUnknownObjectsAreWrittenAsStrings() {
+        final Object value = new Object() {
+            @Override
+            public String toString() {
+                return "custom \"value\"";
+            }
+        };
+        assertEquals("\"custom \\\"value\\\"\"", JSONHelper.toJSONString(value));
+    }
+
+    @Test
+    public void testNestedSerializationFromToString() {
+        // A toString() fallback that uses JSONHelper itself must not clobber the outer output
+        final Object value = new Object() {
+            @Override
+            public String toString() {
+                return JSONHelper.toJSONString(Collections.singletonMap("x", "y"));
+            }
+        };
+        assertEquals(
+                "[\"before\",\"{\\\"x\\\":\\\"y\\\"}\",\"after\"]",
+                JSONHelper.toJSONString(Arrays.asList("before", value, "after"))
+        );
+        // The reused builder is still usable afterwards
+        assertEquals("[\"after\"]", JSONHelper.toJSONString(Collections.singletonList("after")));
+    }
+
+    @Test
+    public void testLargeValuesDoNotBreakFollowingCalls() {
+        final StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            large.append('a');
+        }
+        final String json = JSONHelper.toJSONString(large.toString());
+        assertEquals(100_002, json.length());
+        assertEquals("\"b\"", JSONHelper.toJSONString("b"));
+    }
+
+    @Test
+    public void testReadFirstArrayElement() throws JSONException {
+        assertNull(JSONHelper.readFirstArrayElement("[]"));
+        assertNull(JSONHelper.readFirstArrayElement(" [ ] "));
+        assertEquals("first", JSONHelper.readFirstArrayElement("[\"first\", {\"ignored\": tru"));
+        assertEquals(Collections.singletonMap("a", Arrays.asList(1, 2)), JSONHelper.readFirstArrayElement("[{\"a\":[1,2]}]"));
+    }
+
+    @Test
+    public void testParserNumberTyping() throws JSONException {
+        assertEquals(Integer.valueOf(12), JSONHelper.readFirstArrayElement("[12]"));
+        assertEquals(Integer.valueOf(-2147483648), JSONHelper.readFirstArrayElement("[-2147483648]"));
+        assertEquals(Long.valueOf(2147483648L), JSONHelper.readFirstArrayElement("[2147483648]"));
+        assertEquals(Double.valueOf(1.5), JSONHelper.readFirstArrayElement("[1.5]"));
+        assertEquals(Double.valueOf(1e3), JSONHelper.readFirstArrayElement("[1E3]"));
+        assertEquals(Double.valueOf(1e20), JSONHelper.readFirstArrayElement("[100000000000000000000]"));
+    }
+
+    @Test
+    public void testParserStringEscapes() throws JSONException {
+        assertEquals(
+                "q\"b\\s/\b\f\n\r\té\u2028",
+                JSONHelper.readFirstArrayElement("[\"q\\\"b\\\\s\\/\\b\\f\\n\\r\\t\\u00e9\\u2028\"]")
+        );
+    }
+
+    @Test
+    public void testRoundTrip() throws JSONException {
+        final Map<String, Object> map = new HashMap<>();
+        map.put("string", "with \"quotes\", \\backslashes\\, </tags>, \n newlines and \u0001 \u2028 control chars");
+        map.put("int", 7);
+        map.put("long", 1L << 40);
+        map.put("double", -0.125);
+        map.put("bool", true);
+        map.put("null", null);
+        map.put("emoji", "😀");
+
+        final List<Object> list = new ArrayList<>();
+        list.add(map);
+        list.add(Collections.singletonList(Collections.emptyMap()));
+        list.add("");
+
+        final Object parsed = JSONHelper.readFirstArrayElement("[" + JSONHelper.toJSONString(list) + "]");
+        assertEquals(list, parsed);
+    }
+
+    @Test
+    public void testParserErrors() {
+        final String[] invalidDocuments = {
+                null,
+                "",
+                "{}",
+                "[",
+                "[tru]",
+                "[\"unterminated]",
+                "[\"\\u12\"]",
+                "[\"\\uzzzz\"]",
+                "[{\"a\" 1}]",
+                "[{\"a\":1 \"b\":2}]",
+                "[{a:1}]",
+                "[[1 2]]",
+                "[-]",
+        };
+        for (String document : invalidDocuments) {
+            try {
+                JSONHelper.readFirstArrayElement(document);
+                fail("Expected a JSONException for " + document);
+            } catch (JSONException e) {
+                assertTrue(e.getMessage() != null && !e.getMessage().isEmpty());
+            }
+        }
+    }
+}
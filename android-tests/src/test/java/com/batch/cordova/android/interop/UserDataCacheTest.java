@@ -0,0 +1,103 @@
+package com.batch.cordova.android.interop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class UserDataCacheTest {
+
+    private final AtomicLong currentTime = new AtomicLong(0);
+
+    private final UserDataCache cache = new UserDataCache(currentTime::get);
+
+    private final ManualLoader loader = new ManualLoader();
+
+    @Test
+    public void testConcurrentReadsShareTheLoad() {
+        final SimplePromise<Object> first = cache.get(UserDataCache.Key.LANGUAGE, loader);
+        final SimplePromise<Object> second = cache.get(UserDataCache.Key.LANGUAGE, loader);
+        assertSame(first, second);
+        assertEquals(1, loader.loads.size());
+        assertEquals(SimplePromise.Status.PENDING, first.getStatus());
+
+        loader.loads.get(0).resolve("fr");
+        assertEquals(SimplePromise.Status.RESOLVED, first.getStatus());
+        assertSame(first, cache.get(UserDataCache.Key.LANGUAGE, loader));
+        assertEquals(1, loader.loads.size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testFailedLoadsAreNotCached() {
+        final SimplePromise<Object> failed = cache.get(UserDataCache.Key.ATTRIBUTES, loader);
+        loader.loads.get(0).reject(new Exception("Network error"));
+        assertEquals(SimplePromise.Status.REJECTED, failed.getStatus());
+
+        final SimplePromise<Object> retried = cache.get(UserDataCache.Key.ATTRIBUTES, loader);
+        assertNotSame(failed, retried);
+        assertEquals(2, loader.loads.size());
+
+        // Loaders that throw are handled the same way
+        final SimplePromise<Object> thrown = cache.get(UserDataCache.Key.REGION, () -> {
+            throw new IllegalStateException("Not started");
+        });
+        assertEquals(SimplePromise.Status.REJECTED, thrown.getStatus());
+        assertNotSame(thrown, cache.get(UserDataCache.Key.REGION, loader));
+    }
+
+    @Test
+    public void testValuesLoadedBeforeAnInvalidationAreNotCached() {
+        final SimplePromise<Object> stale = cache.get(UserDataCache.Key.IDENTIFIER, loader);
+        cache.invalidate();
+        loader.loads.get(0).resolve("old identifier");
+
+        // The waiting caller still gets its value, but the next one loads it again
+        assertEquals(SimplePromise.Status.RESOLVED, stale.getStatus());
+        final SimplePromise<Object> fresh = cache.get(UserDataCache.Key.IDENTIFIER, loader);
+        assertNotSame(stale, fresh);
+        assertEquals(2, loader.loads.size());
+    }
+
+    @Test
+    public void testFetchedValuesAreNotCachedWhileAnEditIsPending() {
+        cache.invalidateForEdit();
+
+        cache.get(UserDataCache.Key.ATTRIBUTES, loader);
+        loader.loads.get(0).resolve(Collections.singletonMap("attribute", "before the edit"));
+        cache.get(UserDataCache.Key.ATTRIBUTES, loader);
+        assertEquals(2, loader.loads.size());
+
+        // Getters don't depend on the SDK applying the edit
+        final SimplePromise<Object> language = cache.get(UserDataCache.Key.LANGUAGE, loader);
+        assertSame(language, cache.get(UserDataCache.Key.LANGUAGE, loader));
+        assertEquals(3, loader.loads.size());
+
+        currentTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(UserDataCache.EDIT_APPLY_TIME_MS));
+        final SimplePromise<Object> attributes = cache.get(UserDataCache.Key.ATTRIBUTES, loader);
+        assertSame(attributes, cache.get(UserDataCache.Key.ATTRIBUTES, loader));
+        assertEquals(4, loader.loads.size());
+    }
+
+    /**
+     * Loader returning promises that are resolved by the test
+     */
+    private static class ManualLoader implements UserDataCache.Loader {
+        final List<SimplePromise<Object>> loads = new ArrayList<>();
+
+        @Override
+        public SimplePromise<Object> load() {
+            final SimplePromise<Object> promise = new SimplePromise<>();
+            loads.add(promise);
+            return promise;
+        }
+    }
+}
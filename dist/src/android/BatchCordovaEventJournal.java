@@ -0,0 +1,281 @@
+package com.batch.cordova.android;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk journal of the events that couldn't be delivered to JavaScript, such as a push
+ * received while the WebView isn't listening yet.
+ * <p>
+ * Events are already serialized callback messages. Each one is stored as a record: its length, the CRC32
+ * of its timestamp and content, the time it was appended at and its UTF-8 content. Records are only appended
+ * and fsync'd, so that no Bundle has to be kept in memory until JavaScript is ready.
+ * <p>
+ * Drained records are only removed from the file once the drain listener returned: if the process dies
+ * before that, they are drained again on the next launch. Records older than {@link #MAX_EVENT_AGE_MS}
+ * are dropped when drained, rather than delivered long after they happened.
+ * <p>
+ * A record that was partially written when the process died fails the length or checksum validation:
+ * the journal is truncated right before it when opened, and all previous records are kept.
+ * <p>
+ * The file is only accessed from a single background executor, so that callers on the main thread never
+ * wait for the disk. Appends and drains run in the order they were requested.
+ */
+class BatchCordovaEventJournal {
+    private static final String TAG = "BatchCordovaPlugin";
+
+    private static final String FILE_NAME = "com.batch.cordova.events.journal";
+
+    /**
+     * Size of a record's header: content length, CRC32 and timestamp
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Maximum size of the journal, in bytes. Events are dropped once it is reached.
+     */
+    static final long MAX_SIZE = 512 * 1024;
+
+    /**
+     * Maximum age of an event, in milliseconds. Older events are dropped instead of being drained.
+     */
+    static final long MAX_EVENT_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    private static BatchCordovaEventJournal instance;
+
+    interface DrainListener {
+        /**
+         * Called on the journal's executor with the drained events, in the order they were appended
+         */
+        void onDrained(@NonNull List<String> events);
+    }
+
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    private final File file;
+
+    private final Executor executor;
+
+    private final Clock clock;
+
+    // Only accessed from the executor
+    private FileChannel channel;
+
+    /**
+     * @param executor Executor the file is accessed from. Must run tasks one at a time, in submission order.
+     */
+    BatchCordovaEventJournal(@NonNull File file, @NonNull Executor executor) {
+        this(file, executor, System::currentTimeMillis);
+    }
+
+    BatchCordovaEventJournal(@NonNull File file, @NonNull Executor executor, @NonNull Clock clock) {
+        this.file = file;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the process-wide journal: the plugin and the push service must share it
+     */
+    @NonNull
+    static synchronized BatchCordovaEventJournal getInstance(@NonNull Context context) {
+        if (instance == null) {
+            final Executor executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "BatchCordovaEventJournal");
+                thread.setDaemon(true);
+                return thread;
+            });
+            instance = new BatchCordovaEventJournal(new File(context.getApplicationContext().getFilesDir(), FILE_NAME), executor);
+        }
+        return instance;
+    }
+
+    /**
+     * Durably append a serialized event, in the background
+     */
+    void append(@NonNull String serializedEvent) {
+        executor.execute(() -> write(serializedEvent));
+    }
+
+    /**
+     * Read all events that are not too old, in the order they were appended, and remove them from the
+     * journal once the listener returned.
+     * Events appended before this call are included, even if they are still being written.
+     */
+    void drain(@NonNull DrainListener listener) {
+        executor.execute(() -> {
+            final List<String> events = new ArrayList<>();
+            final long drainedSize = read(events);
+            listener.onDrained(events);
+            if (drainedSize > 0) {
+                remove(drainedSize);
+            }
+        });
+    }
+
+    private void write(@NonNull String serializedEvent) {
+        final byte[] content = serializedEvent.getBytes(StandardCharsets.UTF_8);
+        try {
+            final FileChannel channel = getChannel();
+            final long size = channel.size();
+            if (size + HEADER_SIZE + content.length > MAX_SIZE) {
+                Log.w(TAG, "Event journal is full, dropping an event that couldn't be delivered to JavaScript");
+                return;
+            }
+
+            final long timestamp = clock.currentTimeMillis();
+            final ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + content.length);
+            record.putInt(content.length);
+            record.putInt(checksum(timestamp, content));
+            record.putLong(timestamp);
+            record.put(content);
+            record.flip();
+
+            channel.position(size);
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write to the event journal", e);
+            closeChannel();
+        }
+    }
+
+    /**
+     * @return Size of the records that were read, including the ones that were too old
+     */
+    private long read(@NonNull List<String> events) {
+        if (channel == null && !file.exists()) {
+            return 0;
+        }
+
+        try {
+            return readRecords(getChannel(), events, clock.currentTimeMillis());
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read the event journal", e);
+            closeChannel();
+            return 0;
+        }
+    }
+
+    /**
+     * Remove the given number of bytes of records from the start of the journal, keeping the events
+     * appended after them
+     */
+    private void remove(long drainedSize) {
+        try {
+            final FileChannel channel = getChannel();
+            final long size = channel.size();
+            if (size > drainedSize) {
+                final ByteBuffer remainingRecords = ByteBuffer.allocate((int) (size - drainedSize));
+                channel.position(drainedSize);
+                while (remainingRecords.hasRemaining() && channel.read(remainingRecords) > 0) {
+                    // Keep reading until the end of the file
+                }
+                remainingRecords.flip();
+                channel.position(0);
+                while (remainingRecords.hasRemaining()) {
+                    channel.write(remainingRecords);
+                }
+            }
+            channel.truncate(Math.max(0, size - drainedSize));
+            channel.force(false);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not remove the drained events from the event journal", e);
+            closeChannel();
+        }
+    }
+
+    @NonNull
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            // Drop what a crash may have left behind after the last valid record
+            final long validSize = readRecords(channel, null, 0);
+            if (validSize < channel.size()) {
+                Log.w(TAG, "Event journal has a corrupted tail, truncating it");
+                channel.truncate(validSize);
+                channel.force(false);
+            }
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing more to do
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Read the valid records from the start of the journal
+     *
+     * @param events List to add the events that are not too old to, can be null to only validate the records
+     * @param now    Current time, in milliseconds, to check the age of the events against
+     * @return Offset of the end of the last valid record
+     */
+    private static long readRecords(@NonNull FileChannel channel, List<String> events, long now) throws IOException {
+        final long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, MAX_SIZE));
+        channel.position(0);
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // Keep reading until the buffer is full or the end of the file is reached
+        }
+        buffer.flip();
+
+        long validSize = 0;
+        while (buffer.remaining() >= HEADER_SIZE) {
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+            final long timestamp = buffer.getLong();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+
+            final byte[] content = new byte[length];
+            buffer.get(content);
+            if (checksum(timestamp, content) != checksum) {
+                break;
+            }
+
+            if (events != null && now - timestamp <= MAX_EVENT_AGE_MS) {
+                events.add(new String(content, StandardCharsets.UTF_8));
+            }
+            validSize += HEADER_SIZE + length;
+        }
+        return validSize;
+    }
+
+    private static int checksum(long timestamp, @NonNull byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putLong(timestamp).array());
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+}
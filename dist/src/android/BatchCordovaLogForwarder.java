@@ -0,0 +1,212 @@
+package com.batch.cordova.android;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Forwards native SDK logs to the JavaScript console.
+ * <p>
+ * Log lines are filtered by level, then put in a bounded lock-free buffer. A background thread
+ * periodically sends everything that has been buffered in a single message, so the thread that
+ * logs never waits on the WebView bridge.
+ * When the buffer is full, new lines are dropped and counted: the count is reported to JavaScript
+ * with the next flush.
+ * <p>
+ * The background thread is only started once a line is buffered, and must be stopped with {@link #shutdown()}.
+ */
+class BatchCordovaLogForwarder {
+    private static final String TAG = "BatchCordovaPlugin";
+
+    /**
+     * Maximum number of lines kept in memory while waiting for a flush
+     */
+    static final int BUFFER_CAPACITY = 1000;
+
+    /**
+     * Delay between a line being buffered and the buffer being flushed, in milliseconds
+     */
+    static final long FLUSH_DELAY_MS = 250;
+
+    enum Level {
+        VERBOSE("verbose"),
+        DEBUG("debug"),
+        INFO("info"),
+        WARNING("warning"),
+        ERROR("error"),
+        NONE("none");
+
+        private final String name;
+
+        Level(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Get a level from its JavaScript name, or null if unknown
+         */
+        @Nullable
+        static Level fromName(@Nullable String name) {
+            for (Level level : values()) {
+                if (level.name.equalsIgnoreCase(name)) {
+                    return level;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Receives the buffered lines
+     */
+    interface Output {
+        /**
+         * Whether lines can be sent right now. If not, they stay buffered.
+         */
+        boolean isReady();
+
+        /**
+         * Send a batch of log lines, along with the number of lines that were dropped since the last call
+         */
+        void send(@NonNull List<String> lines, int droppedCount);
+    }
+
+    private final Output output;
+
+    private final ConcurrentLinkedQueue<String> buffer = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger bufferedCount = new AtomicInteger(0);
+
+    private final AtomicInteger droppedCount = new AtomicInteger(0);
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private volatile Level minimumLevel = Level.VERBOSE;
+
+    // Guarded by this
+    private ScheduledExecutorService flushExecutor;
+    private boolean shutdown = false;
+
+    BatchCordovaLogForwarder(@NonNull Output output) {
+        this(output, null);
+    }
+
+    /**
+     * @param flushExecutor Executor to schedule flushes on. If null, a thread is created when first needed.
+     */
+    BatchCordovaLogForwarder(@NonNull Output output, @Nullable ScheduledExecutorService flushExecutor) {
+        this.output = output;
+        this.flushExecutor = flushExecutor;
+    }
+
+    void setMinimumLevel(@NonNull Level level) {
+        minimumLevel = level;
+    }
+
+    @NonNull
+    Level getMinimumLevel() {
+        return minimumLevel;
+    }
+
+    /**
+     * Buffer a log line. Never blocks.
+     */
+    void log(@NonNull Level level, String tag, String message, @Nullable Throwable throwable) {
+        if (level.ordinal() < minimumLevel.ordinal()) {
+            return;
+        }
+
+        if (bufferedCount.incrementAndGet() > BUFFER_CAPACITY) {
+            bufferedCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        buffer.offer(tag + " - " + message + (throwable != null ? " - " + throwable.toString() : ""));
+        scheduleFlush();
+    }
+
+    /**
+     * Schedule a flush, if lines are waiting and no flush is already scheduled.
+     * Should be called once the output becomes ready.
+     */
+    void scheduleFlush() {
+        if (bufferedCount.get() == 0 && droppedCount.get() == 0) {
+            return;
+        }
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            synchronized (this) {
+                if (shutdown) {
+                    return;
+                }
+                getFlushExecutor().schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stop the background thread. Lines that are still buffered are not sent, and new ones are not
+     * flushed anymore.
+     */
+    synchronized void shutdown() {
+        shutdown = true;
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+            flushExecutor = null;
+        }
+    }
+
+    /**
+     * Send all buffered lines to the output, in a single message
+     */
+    void flush() {
+        flushScheduled.set(false);
+
+        if (!output.isReady()) {
+            // Lines stay buffered until the output calls scheduleFlush() again
+            return;
+        }
+
+        final List<String> lines = new ArrayList<>(Math.min(bufferedCount.get(), BUFFER_CAPACITY));
+        String line;
+        while ((line = buffer.poll()) != null) {
+            lines.add(line);
+            bufferedCount.decrementAndGet();
+        }
+
+        final int dropped = droppedCount.getAndSet(0);
+        if (lines.isEmpty() && dropped == 0) {
+            return;
+        }
+
+        try {
+            output.send(lines, dropped);
+        } catch (Exception e) {
+            Log.e(TAG, "Error while forwarding logs to JavaScript", e);
+        }
+    }
+
+    // Must be called with the lock held
+    @NonNull
+    private ScheduledExecutorService getFlushExecutor() {
+        if (flushExecutor == null) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "BatchCordovaLogForwarder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flushExecutor;
+    }
+}
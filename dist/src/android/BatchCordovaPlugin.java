@@ -7,16 +7,20 @@ import android.content.IntentFilter;
 import android.os.Bundle;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
 import com.batch.android.Batch;
 import com.batch.android.BatchMessage;
-import com.batch.android.BatchPushPayload;
 import com.batch.android.LoggerDelegate;
 import com.batch.cordova.android.interop.Action;
 import com.batch.cordova.android.interop.Bridge;
+import com.batch.cordova.android.interop.BridgeDispatcher;
+import com.batch.cordova.android.interop.BridgeMetrics;
 import com.batch.cordova.android.interop.Callback;
 import com.batch.cordova.android.interop.JSONHelper;
+import com.batch.cordova.android.interop.PushTimings;
 import com.batch.cordova.android.interop.SimplePromise;
 
 import org.apache.cordova.CallbackContext;
@@ -25,6 +29,7 @@ import org.apache.cordova.PluginResult;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,16 +63,56 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
         System.setProperty(PLUGIN_VERSION_ENVIRONEMENT_VAR, PLUGIN_VERSION);
     }
 
-    private String genericCallbackId;
+    private volatile String genericCallbackId;
+
+    /**
+     * Whether the current page called "batch.start()", meaning that its listeners are set up
+     */
+    private volatile boolean javascriptStarted = false;
+
+    /**
+     * Keeps the events that couldn't be delivered to JavaScript until it's ready
+     */
+    private BatchCordovaEventJournal eventJournal;
+
+    /**
+     * Buffers native logs and forwards them to JavaScript in batches
+     */
+    private final BatchCordovaLogForwarder logForwarder = new BatchCordovaLogForwarder(new BatchCordovaLogForwarder.Output() {
+        @Override
+        public boolean isReady() {
+            return genericCallbackId != null;
+        }
+
+        @Override
+        public void send(@NonNull List<String> lines, int droppedCount) {
+            final long startTime = System.nanoTime();
+            final Map<String, Object> resultArguments = new HashMap<String, Object>();
+            resultArguments.put("action", "_log");
+            resultArguments.put("messages", lines);
+            if (droppedCount > 0) {
+                resultArguments.put("droppedCount", droppedCount);
+            }
+            sendSerializedCallback("_log", startTime, JSONHelper.toJSONString(resultArguments), false);
+        }
+    });
+
+    /**
+     * Runs bridge calls off the Cordova plugin thread, so that slow actions don't block the next ones
+     */
+    private BridgeDispatcher bridgeDispatcher;
 
     @Override
     protected void pluginInitialize() {
         super.pluginInitialize();
+        bridgeDispatcher = new BridgeDispatcher(cordova.getThreadPool(), Bridge::call);
+        eventJournal = BatchCordovaEventJournal.getInstance(cordova.getActivity());
     }
 
     public void onReset() {
         super.onReset();
         genericCallbackId = null;
+        javascriptStarted = false;
     }
 
     @Override
@@ -81,16 +126,13 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
 
                 if (rawArgs != null && !rawArgs.isEmpty()) {
                     try {
-                        final List<Object> parametersList = JSONHelper.toList(rawArgs);
-                        if (parametersList != null && parametersList.size() > 0) {
-                            final Object firstItem = parametersList.get(0);
-
-                            try {
-                                parametersMap = (Map<String, Object>) firstItem;
-                            } catch (ClassCastException e) {
-                                Log.e(TAG, "Error while sending action to Batch: invalid parameters.", e);
-                                // Do nothing here, just ignore
-                            }
+                        // Only the first argument is used: parse it in a single pass and ignore the rest
+                        final Object firstItem = JSONHelper.readFirstArrayElement(rawArgs);
+                        if (firstItem instanceof Map) {
+                            parametersMap = (Map<String, Object>) firstItem;
+                        } else if (firstItem != null) {
+                            Log.e(TAG, "Error while sending action to Batch: invalid parameters.");
+                            // Do nothing here, just ignore
                         }
                     } catch (com.batch.android.json.JSONException e) {
                         throw new JSONException(e.getMessage());
@@ -108,7 +150,9 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
                     // Set a messaging listener to forward events to cordova
                     Batch.Messaging.setLifecycleListener(this);
 
-                    // Deliver the push that started the activity, if applicable
+                    // Deliver the push that started the activity, if applicable.
+                    // It is journaled and replayed with what happened while JavaScript wasn't ready,
+                    // which happened before it: a single drain keeps them in order.
                     Intent intent = null;
                     try {
                         intent = cordova.getActivity().getIntent();
@@ -118,19 +162,32 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
                     }
 
                     if (intent != null) {
-                        sendPushFromIntent(intent, true, true);
+                        journalPushFromIntent(intent);
                     }
 
+                    javascriptStarted = true;
+                    replayEventJournal();
+
                     // If Batch is already started, we don't need to forward that to the bridge
                     if (BATCH_STARTED) {
                         return true;
                     }
                     BATCH_STARTED = true;
                 } else if (Action.SET_CONFIG.getName().equals(action)) {
-                    parametersMap.put("logger", this);
+                    final Object rawLogLevel = parametersMap.get("logLevel");
+                    final BatchCordovaLogForwarder.Level logLevel = BatchCordovaLogForwarder.Level.fromName(rawLogLevel instanceof String ? (String) rawLogLevel : null);
+                    if (logLevel != null) {
+                        logForwarder.setMinimumLevel(logLevel);
+                    } else if (rawLogLevel != null) {
+                        Log.e(TAG, "Unknown log level '" + rawLogLevel + "', ignoring.");
+                    }
+
+                    if (logForwarder.getMinimumLevel() != BatchCordovaLogForwarder.Level.NONE) {
+                        parametersMap.put("logger", this);
+                    }
                 }
 
-                result = Bridge.call(action, parametersMap, this, cordova.getActivity());
+                result = bridgeDispatcher.dispatch(action, parametersMap, this, cordova.getActivity());
             } catch (org.json.JSONException e) {
                 Log.e(TAG, "Error while deserializing JSON for Batch Bridge", e);
             } finally {
@@ -151,6 +208,9 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
         } else if ("_setupCallback".equals(action)) {
             genericCallbackId = callbackContext.getCallbackId();
             //Log.d(TAG, "DEBUG: Setting up the generic callback " + callbackContext.getCallbackId());
+            // Deliver the logs buffered while JavaScript wasn't listening
+            logForwarder.scheduleFlush();
+            replayEventJournal();
             return true;
         }
         return false;
@@ -165,109 +225,120 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
 
     @Override
     public void callback(String s, Map<String, Object> map) {
-        if (genericCallbackId == null) {
-            Log.e(TAG, "Not sending callback to Batch, _setupCallback doesn't seem to have been called. Something bad happened.");
-        }
-
-        try {
-            final Map<String, Object> resultArguments = new HashMap<String, Object>();
-            resultArguments.put("action", s);
-            resultArguments.put("result", map);
-            final PluginResult result = new PluginResult(PluginResult.Status.OK, new org.json.JSONObject(JSONHelper.fromMap(resultArguments).toString()));
-            result.setKeepCallback(true);
-            webView.sendPluginResult(result, genericCallbackId);
-        } catch (com.batch.android.json.JSONException | JSONException e1) {
-            Log.e(TAG, "Error while serializing callback parameters to JSON", e1);
-        }
+        final long startTime = System.nanoTime();
+        final Map<String, Object> resultArguments = new HashMap<String, Object>();
+        resultArguments.put("action", s);
+        resultArguments.put("result", map);
+        sendSerializedCallback(s, startTime, JSONHelper.toJSONString(resultArguments), false);
     }
 
-    public void log(String tag, String msg, Throwable throwable) {
-        final String message = tag + " - " + msg + (throwable != null ? " - " + throwable.toString() : "");
-
-        if (genericCallbackId == null) {
-            Log.e(TAG, "Not sending log to Batch, _setupCallback doesn't seem to have been called.");
+    /**
+     * Sends an already serialized JSON object to the generic callback, without parsing it back.
+     *
+     * @param callbackName Name of the callback, for {@link BridgeMetrics}
+     * @param startTime    {@link System#nanoTime()} when the callback started being built, for {@link BridgeMetrics}
+     * @param journal      Whether to write the object to the event journal if JavaScript isn't listening.
+     *                     Otherwise, it is dropped.
+     */
+    private void sendSerializedCallback(String callbackName, long startTime, String json, boolean journal) {
+        final String callbackId = genericCallbackId;
+        if (callbackId == null) {
+            if (journal) {
+                Log.d(TAG, "_setupCallback hasn't been called yet, journaling the callback until it is.");
+                eventJournal.append(json);
+            } else {
+                Log.e(TAG, "Not sending callback to Batch, _setupCallback doesn't seem to have been called.");
+            }
+        } else {
+            final PluginResult result = new PluginResult(PluginResult.Status.OK, new SerializedJSONObject(json));
+            result.setKeepCallback(true);
+            webView.sendPluginResult(result, callbackId);
         }
 
-        try {
-            final Map<String, Object> resultArguments = new HashMap<String, Object>();
-            resultArguments.put("action", "_log");
-            resultArguments.put("message", message);
-            final PluginResult result = new PluginResult(PluginResult.Status.OK, new org.json.JSONObject(JSONHelper.fromMap(resultArguments).toString()));
-            result.setKeepCallback(true);
-            webView.sendPluginResult(result, genericCallbackId);
-        } catch (com.batch.android.json.JSONException | JSONException e1) {
-            Log.e(TAG, "Error while serializing callback parameters to JSON", e1);
+        if (BridgeMetrics.isEnabled()) {
+            BridgeMetrics.recordCallback(callbackName, startTime, json.length());
         }
     }
 
     /**
-     * Sends the push received event to cordova if a push is found in the intent
+     * Sends the push received event to cordova if a push is found in the intent.
+     * If JavaScript isn't ready, the event is journaled and delivered once it is.
      *
      * @param intent        Intent in which the push is
      * @param forceDelivery Force the push delivery even if Batch isn't started
      */
     public void sendPushFromIntent(Intent intent, boolean forceDelivery, boolean startedApp) {
-        if (genericCallbackId == null || (!forceDelivery && !BATCH_STARTED)) {
+        final String pushEvent = consumePushEvent(intent, startedApp);
+        if (pushEvent == null) {
             return;
         }
 
-        if (intent.hasExtra(INTENT_EXTRA_CONSUMED_PUSH)) {
-            return;
+        final long startTime = PushTimings.start();
+        if (!forceDelivery && !BATCH_STARTED) {
+            eventJournal.append(pushEvent);
+        } else {
+            sendSerializedCallback("_dispatchPush", startTime, pushEvent, true);
         }
+        PushTimings.record(PushTimings.Stage.DELIVERY, startTime);
+    }
 
-        Bundle extras = intent.getExtras();
-        if (extras != null && !extras.isEmpty()) {
-            Bundle payload = extras.getBundle(Batch.Push.PAYLOAD_KEY);
-            if (payload != null && !payload.isEmpty()) {
-                final JSONObject jsonPayload = new JSONObject();
-
-                for (String key : payload.keySet()) {
-                    Object value = payload.get(key);
-                    if (value == null) {
-                        continue;
-                    }
-
-                    if (!(value instanceof String)) {
-                        value = value.toString();
-                    }
+    /**
+     * Journals the push received event of the push that started the app, if the intent has one,
+     * so that it is delivered with the next journal replay
+     */
+    private void journalPushFromIntent(Intent intent) {
+        final String pushEvent = consumePushEvent(intent, true);
+        if (pushEvent != null) {
+            final long startTime = PushTimings.start();
+            eventJournal.append(pushEvent);
+            PushTimings.record(PushTimings.Stage.DELIVERY, startTime);
+        }
+    }
 
-                    try {
-                        jsonPayload.put(key, value);
-                    } catch (JSONException e) {
-                        Log.e(TAG, "Error while parsing push payload.", e);
-                        return;
-                    }
-                }
+    /**
+     * Serializes the push received event of the push found in an intent, and marks the intent
+     * so that it isn't delivered twice
+     *
+     * @return The serialized event, or null if the intent has no push or it was already consumed
+     */
+    @Nullable
+    private static String consumePushEvent(Intent intent, boolean startedApp) {
+        if (intent.hasExtra(INTENT_EXTRA_CONSUMED_PUSH)) {
+            return null;
+        }
 
-                Log.d(TAG, "JSON payload to cordova : " + jsonPayload.toString());
+        final String pushEvent = BatchCordovaPushEvents.serialize(intent.getExtras(), startedApp);
+        if (pushEvent != null) {
+            intent.putExtra(INTENT_EXTRA_CONSUMED_PUSH, true);
+        }
+        return pushEvent;
+    }
 
-                intent.putExtra(INTENT_EXTRA_CONSUMED_PUSH, true);
+    /**
+     * Sends the journaled events to JavaScript in a single message, once it is listening and started
+     */
+    private void replayEventJournal() {
+        if (genericCallbackId == null || !javascriptStarted) {
+            return;
+        }
 
-                boolean hasLandingMessage = false;
-                try {
-                    BatchPushPayload parsedPayload = BatchPushPayload.payloadFromBundle(extras);
-                    if (parsedPayload != null && parsedPayload.hasLandingMessage()) {
-                        hasLandingMessage = true;
-                    }
-                } catch (BatchPushPayload.ParsingException e) {
-                    Log.e(TAG, "Error while checking if the push contains a landing.", e);
-                }
+        eventJournal.drain(events -> {
+            if (events.isEmpty()) {
+                return;
+            }
 
-                try {
-                    final JSONObject jsonResult = new JSONObject();
-                    jsonResult.put("action", "_dispatchPush");
-                    jsonResult.put("payload", jsonPayload);
-                    jsonResult.put("hasLandingMessage", hasLandingMessage);
-                    jsonResult.put("didStartApp", startedApp);
-
-                    final PluginResult result = new PluginResult(PluginResult.Status.OK, jsonResult);
-                    result.setKeepCallback(true);
-                    webView.sendPluginResult(result, genericCallbackId);
-                } catch (org.json.JSONException e) {
-                    Log.e(TAG, "Error while sending push payload to cordova.", e);
-                }
+            // Events are already serialized: write them as is
+            final long startTime = System.nanoTime();
+            final List<Object> serializedEvents = new ArrayList<>(events.size());
+            for (String event : events) {
+                serializedEvents.add(JSONHelper.SerializedValue.fromJSON(event));
             }
-        }
+            final Map<String, Object> replay = new HashMap<>();
+            replay.put("action", "_replayEvents");
+            replay.put("events", serializedEvents);
+            // Journaled again if JavaScript stopped listening in the meantime
+            sendSerializedCallback("_replayEvents", startTime, JSONHelper.toJSONString(replay), true);
+        });
     }
 
     // Activity lifecycle methods
@@ -314,6 +385,7 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
 
     @Override
     public void onDestroy() {
+        logForwarder.shutdown();
         Batch.onDestroy(cordova.getActivity());
         super.onDestroy();
     }
@@ -324,27 +396,27 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
 
     @Override
     public void error(String tag, String message, Throwable throwable) {
-        log(tag, message, throwable);
+        logForwarder.log(BatchCordovaLogForwarder.Level.ERROR, tag, message, throwable);
     }
 
     @Override
     public void warn(String tag, String message, Throwable throwable) {
-        log(tag, message, throwable);
+        logForwarder.log(BatchCordovaLogForwarder.Level.WARNING, tag, message, throwable);
     }
 
     @Override
     public void debug(String tag, String message, Throwable throwable) {
-        log(tag, message, throwable);
+        logForwarder.log(BatchCordovaLogForwarder.Level.DEBUG, tag, message, throwable);
     }
 
     @Override
     public void info(String tag, String message, Throwable throwable) {
-        log(tag, message, throwable);
+        logForwarder.log(BatchCordovaLogForwarder.Level.INFO, tag, message, throwable);
     }
 
     @Override
     public void verbose(String tag, String message, Throwable throwable) {
-        log(tag, message, throwable);
+        logForwarder.log(BatchCordovaLogForwarder.Level.VERBOSE, tag, message, throwable);
     }
 
     /****
@@ -361,25 +433,16 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
     }
 
     private void dispatchMessagingEvent(String lifecycleEvent, String messageIdentifier) {
-        if (genericCallbackId == null) {
-            return;
-        }
+        final long startTime = System.nanoTime();
+        final Map<String, Object> event = new HashMap<>();
+        event.put("action", "_dispatchMessagingEvent");
+        event.put("lifecycleEvent", lifecycleEvent);
 
-        try {
-            final JSONObject json = new JSONObject();
-            json.put("action", "_dispatchMessagingEvent");
-            json.put("lifecycleEvent", lifecycleEvent);
-
-            if (messageIdentifier != null) {
-                json.put("messageIdentifier", messageIdentifier);
-            }
-
-            final PluginResult result = new PluginResult(PluginResult.Status.OK, json);
-            result.setKeepCallback(true);
-            webView.sendPluginResult(result, genericCallbackId);
-        } catch (org.json.JSONException e) {
-            Log.e(TAG, "Error while sending push payload to cordova.", e);
+        if (messageIdentifier != null) {
+            event.put("messageIdentifier", messageIdentifier);
         }
+
+        sendSerializedCallback("_dispatchMessagingEvent", startTime, JSONHelper.toJSONString(event), true);
     }
 
     /****
@@ -426,6 +489,24 @@ public class BatchCordovaPlugin extends CordovaPlugin implements Callback, Logge
         }
     }
 
+    /**
+     * JSONObject wrapping a JSON string that has already been serialized.
+     * PluginResult only calls toString() on the object it is given, so this saves
+     * a parse and a serialization compared to handing it a real JSONObject.
+     */
+    private static class SerializedJSONObject extends JSONObject {
+        private final String json;
+
+        SerializedJSONObject(String json) {
+            this.json = json;
+        }
+
+        @Override
+        public String toString() {
+            return json;
+        }
+    }
+
     private final BroadcastReceiver foregroundPushReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -0,0 +1,84 @@
+package com.batch.cordova.android;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.batch.android.Batch;
+import com.batch.android.BatchPushPayload;
+import com.batch.cordova.android.interop.JSONHelper;
+import com.batch.cordova.android.interop.PushTimings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the push received events sent to JavaScript, for both the plugin and the push service
+ */
+final class BatchCordovaPushEvents {
+    private static final String TAG = "BatchCordovaPlugin";
+
+    /**
+     * Extra added to {@link BatchCordovaPlugin#ACTION_FOREGROUND_PUSH} broadcasts by the push service, which already parsed the payload
+     */
+    static final String EXTRA_HAS_LANDING_MESSAGE = "com.batch.android.cordova.has_landing_message";
+
+    private BatchCordovaPushEvents() {
+    }
+
+    /**
+     * Serializes the push received event for a push found in an intent's extras.
+     * The payload is only parsed if the extras don't have {@link #EXTRA_HAS_LANDING_MESSAGE}.
+     *
+     * @return The serialized event, or null if the extras don't contain a push
+     */
+    @Nullable
+    static String serialize(@Nullable Bundle extras, boolean startedApp) {
+        if (extras == null || extras.isEmpty()) {
+            return null;
+        }
+
+        Bundle payload = extras.getBundle(Batch.Push.PAYLOAD_KEY);
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+
+        boolean hasLandingMessage = false;
+        if (extras.containsKey(EXTRA_HAS_LANDING_MESSAGE)) {
+            hasLandingMessage = extras.getBoolean(EXTRA_HAS_LANDING_MESSAGE);
+        } else {
+            final long startTime = PushTimings.start();
+            try {
+                BatchPushPayload parsedPayload = BatchPushPayload.payloadFromBundle(extras);
+                if (parsedPayload != null && parsedPayload.hasLandingMessage()) {
+                    hasLandingMessage = true;
+                }
+            } catch (BatchPushPayload.ParsingException e) {
+                Log.e(TAG, "Error while checking if the push contains a landing.", e);
+            }
+            PushTimings.record(PushTimings.Stage.PAYLOAD_PARSE, startTime);
+        }
+
+        final long startTime = PushTimings.start();
+        // Values are written as is when they already are strings, which is the case for almost all of them
+        final Map<String, Object> jsonPayload = new HashMap<>((int) (payload.size() / 0.75f) + 1);
+        for (String key : payload.keySet()) {
+            Object value = payload.get(key);
+            if (value == null) {
+                continue;
+            }
+            jsonPayload.put(key, value instanceof String ? value : value.toString());
+        }
+
+        final Map<String, Object> event = new HashMap<>(8);
+        event.put("action", "_dispatchPush");
+        event.put("payload", jsonPayload);
+        event.put("hasLandingMessage", hasLandingMessage);
+        event.put("didStartApp", startedApp);
+
+        final String serializedEvent = JSONHelper.toJSONString(event);
+        PushTimings.record(PushTimings.Stage.SERIALIZE, startTime);
+        return serializedEvent;
+    }
+}
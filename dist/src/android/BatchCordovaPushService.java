@@ -1,11 +1,7 @@
 package com.batch.cordova.android;
 
-import static com.batch.cordova.android.interop.Bridge.BATCH_API_KEY_SHARED_PREFS_KEY;
-import static com.batch.cordova.android.interop.Bridge.BATCH_SHARED_PREFS_FILE;
-
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
@@ -18,6 +14,7 @@ import com.batch.android.BatchMessage;
 import com.batch.android.BatchPushPayload;
 import com.batch.android.MessagingActivity;
 import com.batch.cordova.android.interop.Bridge;
+import com.batch.cordova.android.interop.PushTimings;
 
 public class BatchCordovaPushService extends JobIntentService {
     private static final String TAG = "BatchCordovaPushService";
@@ -34,6 +31,11 @@ public class BatchCordovaPushService extends JobIntentService {
 
     private static final boolean ENABLE_FOREGROUND_NOTIFICATION_HANDLING_DEFAULT = false;
 
+    /**
+     * Manifest meta-data value, read once per process
+     */
+    private static volatile Boolean foregroundNotificationHandlingEnabled;
+
     /**
      * Convenience method for enqueuing work in to this service.
      */
@@ -43,22 +45,33 @@ public class BatchCordovaPushService extends JobIntentService {
 
     @Override
     protected void onHandleWork(Intent intent) {
+        final long handlingStartTime = PushTimings.start();
         try {
             if (!BatchCordovaPlugin.BATCH_STARTED) {
                 // Batch is not started since js is not available yet,
                 // we need to start it to track direct open.
-                SharedPreferences preferences = this.getSharedPreferences(BATCH_SHARED_PREFS_FILE, Context.MODE_PRIVATE);
-                String apiKey = preferences.getString(BATCH_API_KEY_SHARED_PREFS_KEY, null);
+                final long startTime = PushTimings.start();
+                String apiKey = Bridge.getAPIKey(this);
                 if (apiKey != null) {
                     Batch.start(apiKey);
                 } else {
                     Log.w(TAG, "Cannot start batch from push service, direct open may not be tracked correctly");
                 }
+                PushTimings.record(PushTimings.Stage.SDK_START, startTime);
             }
-            if (Batch.Push.shouldDisplayPush(this, intent)) {
+
+            long startTime = PushTimings.start();
+            final boolean shouldDisplayPush = Batch.Push.shouldDisplayPush(this, intent);
+            PushTimings.record(PushTimings.Stage.SHOULD_DISPLAY, startTime);
+
+            if (shouldDisplayPush) {
                 if (isForegroundPushHandlingEnabled() && isAppInForeground()) {
+                    startTime = PushTimings.start();
                     BatchPushPayload pushPayload = BatchPushPayload.payloadFromReceiverIntent(intent);
                     boolean pushContainsLanding = pushPayload != null && pushPayload.hasLandingMessage();
+                    PushTimings.record(PushTimings.Stage.PAYLOAD_PARSE, startTime);
+
+                    startTime = PushTimings.start();
                     if (pushContainsLanding) {
                         BatchMessage msg = pushPayload.getLandingMessage();
                         BatchMessage.Format format = msg.getFormat();
@@ -71,20 +84,36 @@ public class BatchCordovaPushService extends JobIntentService {
                         }
                     }
 
-                    forwardPushToForegroundActivity(intent);
+                    // The payload has been parsed already: hand the result over so that the plugin doesn't parse it again
+                    forwardPushToForegroundActivity(intent, pushContainsLanding);
                     Batch.Push.onNotificationDisplayed(this, intent);
+                    PushTimings.record(PushTimings.Stage.DISPLAY, startTime);
                 } else {
+                    startTime = PushTimings.start();
                     Batch.Push.displayNotification(this, intent);
+                    PushTimings.record(PushTimings.Stage.DISPLAY, startTime);
                 }
 
             }
         } catch (Exception e) {
             Log.e(TAG, "An error occurred while handling push", e);
+        } finally {
+            PushTimings.record(PushTimings.Stage.SERVICE, handlingStartTime);
         }
     }
 
-    // Checks if the foreground push is enabled in the manifest
+    // Checks if the foreground push is enabled in the manifest.
+    // The manifest can't change while the process is alive, so it is only read once.
     private boolean isForegroundPushHandlingEnabled() {
+        Boolean enabled = foregroundNotificationHandlingEnabled;
+        if (enabled == null) {
+            enabled = readForegroundPushHandlingEnabled();
+            foregroundNotificationHandlingEnabled = enabled;
+        }
+        return enabled;
+    }
+
+    private boolean readForegroundPushHandlingEnabled() {
         try {
             ApplicationInfo appInfo = getPackageManager().getApplicationInfo(getPackageName(), PackageManager.GET_META_DATA);
             if (appInfo.metaData != null) {
@@ -103,10 +132,17 @@ public class BatchCordovaPushService extends JobIntentService {
         return BatchCordovaPlugin.isApplicationInForeground();
     }
 
-    private void forwardPushToForegroundActivity(Intent pushIntent) {
+    private void forwardPushToForegroundActivity(Intent pushIntent, boolean hasLandingMessage) {
         final Intent i = new Intent(BatchCordovaPlugin.ACTION_FOREGROUND_PUSH);
         i.putExtra(Batch.Push.PAYLOAD_KEY, pushIntent.getExtras());
-        LocalBroadcastManager.getInstance(this).sendBroadcast(i);
+        i.putExtra(BatchCordovaPushEvents.EXTRA_HAS_LANDING_MESSAGE, hasLandingMessage);
+        if (!LocalBroadcastManager.getInstance(this).sendBroadcast(i)) {
+            // The activity stopped in the meantime: keep the push until JavaScript is ready
+            final String pushEvent = BatchCordovaPushEvents.serialize(i.getExtras(), false);
+            if (pushEvent != null) {
+                BatchCordovaEventJournal.getInstance(this).append(pushEvent);
+            }
+        }
     }
 
     private void forwardBannerToForegroundActivity(Bundle message) {
@@ -31,6 +31,7 @@ public enum Action
     PUSH_IOS_REFRESH_TOKEN("push.iOS.refreshToken"),
     PUSH_REQUEST_AUTHORIZATION("push.requestAuthorization"),
     PUSH_IOS_REQUEST_PROVISIONAL_AUTH("push.iOS.requestProvisionalAuthorization"),
+    PUSH_DEBUG_GET_TIMINGS("push.debug.getTimings"),
 	PROFILE_EDIT("profile.edit"),
 	PROFILE_IDENTIFY("profile.identify"),
 	PROFILE_TRACK_EVENT("profile.track.event"),
@@ -43,6 +44,7 @@ public enum Action
     USER_FETCH_ATTRIBUTES("user.fetch.attributes"),
     USER_FETCH_TAGS("user.fetch.tags"),
     USER_CLEAR_INSTALL_DATA("user.clearInstallationData"),
+    USER_GET_CACHE_STATS("user.getCacheStats"),
     INBOX_CREATE_INSTALLATION_FETCHER("inbox.createInstallationFetcher"),
     INBOX_CREATE_USER_FETCHER("inbox.createUserFetcher"),
     INBOX_RELEASE_FETCHER("inbox.releaseFetcher"),
@@ -52,7 +54,9 @@ public enum Action
     INBOX_MARK_AS_READ("inbox.markAsRead"),
     INBOX_MARK_ALL_AS_READ("inbox.markAllAsRead"),
     INBOX_MARK_AS_DELETED("inbox.markAsDeleted"),
-    INBOX_DISPLAY_LANDING_MESSAGE("inbox.displayLandingMessage");
+    INBOX_DISPLAY_LANDING_MESSAGE("inbox.displayLandingMessage"),
+    BATCH("batch"),
+    DEBUG_METRICS("debug.metrics");
 
     /**
      * Action name, the one passed as a paremeter in {@link com.batch.android.interop.Bridge}
@@ -37,6 +37,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Bridge that allows code to use Batch's APIs via an action+parameters request, to easily bridge it to some kind of JSON RPC
@@ -51,21 +52,31 @@ public class Bridge {
 
     private static final InboxBridge inboxBridge = new InboxBridge();
 
+    private static final UserDataCache userDataCache = new UserDataCache();
+
     private static final String TAG = "BatchBridge";
 
     public static final String BATCH_SHARED_PREFS_FILE ="batch";
     public static final String BATCH_API_KEY_SHARED_PREFS_KEY ="batch_api_key";
 
+    /**
+     * Last known API key, so that the shared preferences are only read once per process
+     */
+    private static volatile String apiKey;
+
     static {
         System.setProperty(BRIDGE_VERSION_ENVIRONMENT_VAR, BRIDGE_VERSION);
     }
 
     @SuppressWarnings("unused")
     public static SimplePromise<String> call(String action, Map<String, Object> parameters, Callback callback, Activity activity) {
+        final long startTime = System.nanoTime();
         SimplePromise<String> result = null;
+        boolean failed = false;
         try {
-            result = doAction(action, parameters, activity);
+            result = doAction(action, parameters, callback, activity);
         } catch (Exception e) {
+            failed = true;
             Log.e(TAG, "Batch bridge raised an exception", e);
             if (callback != null) {
                 final Map<String, Object> failResult = new HashMap<>();
@@ -79,10 +90,14 @@ public class Bridge {
             result = SimplePromise.resolved("");
         }
 
+        if (BridgeMetrics.isEnabled()) {
+            BridgeMetrics.recordCall(action, startTime, result, failed);
+        }
+
         return result;
     }
 
-    private static SimplePromise<String> doAction(String actionName, Map<String, Object> parameters, Activity activity) throws BridgeException, BatchBridgeNotImplementedException {
+    private static SimplePromise<String> doAction(String actionName, Map<String, Object> parameters, Callback callback, Activity activity) throws BridgeException, BatchBridgeNotImplementedException {
         if (actionName == null || actionName.isEmpty()) {
             throw new BridgeException(INVALID_PARAMETER + " : Empty or null action");
         }
@@ -100,6 +115,7 @@ public class Bridge {
                 break;
             case START:
                 start(activity);
+                pushUserDataSnapshot(activity, callback);
                 break;
             case STOP:
                 stop(activity);
@@ -112,12 +128,15 @@ public class Bridge {
                 break;
             case OPT_IN:
                 optIn(activity);
+                userDataCache.invalidate();
                 break;
             case OPT_OUT:
                 optOut(activity, false);
+                userDataCache.invalidate();
                 break;
             case OPT_OUT_AND_WIPE_DATA:
                 optOut(activity, true);
+                userDataCache.invalidate();
                 break;
             case IS_OPTED_OUT:
                 return convertModernPromiseToLegacy(isOptedOut(activity));
@@ -162,11 +181,15 @@ public class Bridge {
             case PUSH_IOS_REQUEST_PROVISIONAL_AUTH:
                 // iOS only, do nothing
                 return null;
+            case PUSH_DEBUG_GET_TIMINGS:
+                return convertModernPromiseToLegacy(getPushTimings(parameters));
             case PROFILE_IDENTIFY:
                 identify(parameters);
+                userDataCache.invalidate();
                 break;
             case PROFILE_EDIT:
                 editProfileAttributes(parameters);
+                userDataCache.invalidateForEdit();
                 break;
             case PROFILE_TRACK_EVENT:
                 return convertModernPromiseToLegacy(trackEvent(parameters));
@@ -174,19 +197,22 @@ public class Bridge {
                 trackLocation(parameters);
                 break;
             case USER_GET_INSTALLATION_ID:
-                return SimplePromise.resolved(Batch.User.getInstallationID());
+                return convertModernPromiseToLegacy(getUserData(UserDataCache.Key.INSTALLATION_ID, activity));
             case USER_GET_LANGUAGE:
-                return SimplePromise.resolved(Batch.User.getLanguage(activity));
+                return convertModernPromiseToLegacy(getUserData(UserDataCache.Key.LANGUAGE, activity));
             case USER_GET_REGION:
-                return SimplePromise.resolved(Batch.User.getRegion(activity));
+                return convertModernPromiseToLegacy(getUserData(UserDataCache.Key.REGION, activity));
             case USER_GET_IDENTIFIER:
-                return SimplePromise.resolved(Batch.User.getIdentifier(activity));
+                return convertModernPromiseToLegacy(getUserData(UserDataCache.Key.IDENTIFIER, activity));
             case USER_FETCH_ATTRIBUTES:
-                return convertModernPromiseToLegacy(userFetchAttributes(activity));
+                return convertModernPromiseToLegacy(getUserData(UserDataCache.Key.ATTRIBUTES, activity));
             case USER_FETCH_TAGS:
-                return convertModernPromiseToLegacy(userFetchTags(activity));
+                return convertModernPromiseToLegacy(getUserData(UserDataCache.Key.TAGS, activity));
+            case USER_GET_CACHE_STATS:
+                return convertModernPromiseToLegacy(getUserDataCacheStats());
             case USER_CLEAR_INSTALL_DATA:
                 Batch.User.clearInstallationData();
+                userDataCache.invalidateForEdit();
                 break;
             case INBOX_CREATE_INSTALLATION_FETCHER:
             case INBOX_CREATE_USER_FETCHER:
@@ -198,7 +224,13 @@ public class Bridge {
             case INBOX_MARK_ALL_AS_READ:
             case INBOX_MARK_AS_DELETED:
             case INBOX_DISPLAY_LANDING_MESSAGE:
-                return inboxBridge.compatDoAction(action, parameters, activity);
+                return inboxBridge.compatDoAction(action, parameters, activity, callback);
+            case BATCH:
+                // Batched calls are spread over the dispatcher lanes, the bridge only gets the ones it couldn't read
+                getTypedParameter(parameters, "calls", List.class);
+                throw new BridgeException(INVALID_PARAMETER + " : '" + actionName + "' calls must be sent through a BridgeDispatcher");
+            case DEBUG_METRICS:
+                return convertModernPromiseToLegacy(configureMetrics(parameters));
             default:
                 throw new BridgeException(INVALID_PARAMETER + " : Action '" + actionName + "' is known, but not implemented");
         }
@@ -217,6 +249,23 @@ public class Bridge {
         return errorMap;
     }
 
+    /**
+     * Optionally enable/disable the metrics, reset them or dump them to logcat periodically,
+     * then return a snapshot of them
+     */
+    private static SimplePromise<Object> configureMetrics(Map<String, Object> parameters) {
+        final Boolean enable = getOptionalTypedParameter(parameters, "enabled", Boolean.class, null);
+        if (enable != null) {
+            final Number logInterval = getOptionalTypedParameter(parameters, "logIntervalMs", Number.class, 0);
+            BridgeMetrics.configure(enable, logInterval.longValue());
+        }
+        final Map<String, Object> snapshot = BridgeMetrics.getSnapshot(inboxBridge.getMetrics());
+        if (Boolean.TRUE.equals(getOptionalTypedParameter(parameters, "reset", Boolean.class, false))) {
+            BridgeMetrics.reset();
+        }
+        return SimplePromise.resolved(snapshot);
+    }
+
     // region Core Module
 
     private static void setConfig(Context context, Map<String, Object> parameters) throws BridgeException {
@@ -253,11 +302,28 @@ public class Bridge {
         }
         // Start SDK
         String apiKey = getTypedParameter(parameters, "APIKey", String.class);
-        SharedPreferences preferences = context.getSharedPreferences(BATCH_SHARED_PREFS_FILE, Context.MODE_PRIVATE);
-        preferences.edit().putString(BATCH_API_KEY_SHARED_PREFS_KEY, apiKey).apply();
+        if (!apiKey.equals(getAPIKey(context))) {
+            SharedPreferences preferences = context.getSharedPreferences(BATCH_SHARED_PREFS_FILE, Context.MODE_PRIVATE);
+            preferences.edit().putString(BATCH_API_KEY_SHARED_PREFS_KEY, apiKey).apply();
+            Bridge.apiKey = apiKey;
+        }
         Batch.start(apiKey);
     }
 
+    /**
+     * Get the API key given to the last setConfig call, even in a previous process.
+     * Used to start the SDK when a push is received before JavaScript could do it.
+     */
+    public static String getAPIKey(Context context) {
+        String cachedAPIKey = apiKey;
+        if (cachedAPIKey == null) {
+            SharedPreferences preferences = context.getSharedPreferences(BATCH_SHARED_PREFS_FILE, Context.MODE_PRIVATE);
+            cachedAPIKey = preferences.getString(BATCH_API_KEY_SHARED_PREFS_KEY, null);
+            apiKey = cachedAPIKey;
+        }
+        return cachedAPIKey;
+    }
+
     private static void start(Activity activity) {
         Batch.onStart(activity);
     }
@@ -333,6 +399,14 @@ public class Bridge {
         Batch.Push.requestNotificationPermission(activity);
     }
 
+    private static SimplePromise<Object> getPushTimings(Map<String, Object> parameters) {
+        final Map<String, Object> timings = PushTimings.getSnapshot();
+        if (Boolean.TRUE.equals(getOptionalTypedParameter(parameters, "reset", Boolean.class, false))) {
+            PushTimings.reset();
+        }
+        return SimplePromise.resolved(Collections.singletonMap("timings", timings));
+    }
+
     // endregion
     //region Messaging Module
 
@@ -573,6 +647,72 @@ public class Bridge {
     //endregion
     //region User Module
 
+    /**
+     * Read user data through {@link #userDataCache}
+     */
+    @NonNull
+    private static SimplePromise<Object> getUserData(@NonNull UserDataCache.Key key, Activity activity) {
+        return userDataCache.get(key, () -> switch (key) {
+            case INSTALLATION_ID -> SimplePromise.resolved(Batch.User.getInstallationID());
+            case LANGUAGE -> SimplePromise.resolved(Batch.User.getLanguage(activity));
+            case REGION -> SimplePromise.resolved(Batch.User.getRegion(activity));
+            case IDENTIFIER -> SimplePromise.resolved(Batch.User.getIdentifier(activity));
+            case ATTRIBUTES -> userFetchAttributes(activity);
+            case TAGS -> userFetchTags(activity);
+        });
+    }
+
+    /**
+     * Send a snapshot of the user data to the plugin, so that it can answer reads without going through the bridge.
+     * The snapshot also warms up the cache. Attributes and tag collections are left out if they can't be fetched.
+     */
+    private static void pushUserDataSnapshot(Activity activity, Callback callback) {
+        if (callback == null) {
+            return;
+        }
+
+        final Map<String, Object> snapshot = new HashMap<>();
+        getUserData(UserDataCache.Key.INSTALLATION_ID, activity).then(value -> addToSnapshot(snapshot, "installationID", value));
+        getUserData(UserDataCache.Key.LANGUAGE, activity).then(value -> addToSnapshot(snapshot, "language", value));
+        getUserData(UserDataCache.Key.REGION, activity).then(value -> addToSnapshot(snapshot, "region", value));
+        getUserData(UserDataCache.Key.IDENTIFIER, activity).then(value -> addToSnapshot(snapshot, "identifier", value));
+
+        // Fetched values are the same responses as the fetch actions
+        final AtomicInteger remainingFetches = new AtomicInteger(2);
+        final Runnable onFetchDone = () -> {
+            if (remainingFetches.decrementAndGet() == 0) {
+                synchronized (snapshot) {
+                    callback.callback(Result.USER_DATA_SNAPSHOT.getName(), snapshot);
+                }
+            }
+        };
+        getUserData(UserDataCache.Key.ATTRIBUTES, activity)
+                .then(value -> {
+                    addToSnapshot(snapshot, "attributes", value);
+                    onFetchDone.run();
+                })
+                .catchException(e -> onFetchDone.run());
+        getUserData(UserDataCache.Key.TAGS, activity)
+                .then(value -> {
+                    addToSnapshot(snapshot, "tagCollections", value);
+                    onFetchDone.run();
+                })
+                .catchException(e -> onFetchDone.run());
+    }
+
+    private static void addToSnapshot(@NonNull Map<String, Object> snapshot, @NonNull String key, Object value) {
+        synchronized (snapshot) {
+            snapshot.put(key, value);
+        }
+    }
+
+    private static SimplePromise<Object> getUserDataCacheStats() {
+        final Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", userDataCache.getHitCount());
+        stats.put("misses", userDataCache.getMissCount());
+        return SimplePromise.resolved(stats);
+    }
+
     private static SimplePromise<Object> userFetchAttributes(Activity activity) {
         return new SimplePromise<>(promise -> {
             Batch.User.fetchAttributes(activity, new BatchAttributesFetchListener() {
@@ -0,0 +1,339 @@
+package com.batch.cordova.android.interop;
+
+import android.app.Activity;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches bridge calls off the caller's thread.
+ * <p>
+ * Each {@link Action} is sent to a {@link Lane}: actions that change the SDK state run one after
+ * the other in the order they were dispatched, inbox actions get their own ordered lane so that
+ * they don't wait behind profile writes, and read-only actions run concurrently.
+ * <p>
+ * Reads still see the writes dispatched before them: a {@link Lane#CONCURRENT} action waits until
+ * every {@link Lane#SERIAL} action dispatched before it has run. Reads don't wait for each other.
+ * <p>
+ * Ordered lanes don't own any thread: they post their tasks one at a time on the executor
+ * given to the constructor.
+ * <p>
+ * A {@link Action#BATCH} call doesn't have a lane: each call it contains is dispatched to its own lane,
+ * in order, exactly as if it had been dispatched on its own.
+ */
+public class BridgeDispatcher {
+    private static final String TAG = "BatchBridge";
+
+    public enum Lane {
+        /**
+         * Actions that mutate the SDK state (configuration, start, profile and user writes...)
+         * Executed serially, in dispatch order.
+         */
+        SERIAL,
+
+        /**
+         * Inbox actions. Executed serially, in dispatch order.
+         */
+        INBOX,
+
+        /**
+         * Read-only actions, with no ordering guarantee between them.
+         * They run after the {@link #SERIAL} actions dispatched before them.
+         */
+        CONCURRENT
+    }
+
+    /**
+     * Performs a bridge call on a lane's executor.
+     * Usually {@link Bridge#call(String, Map, Callback, Activity)}.
+     */
+    public interface CallHandler {
+        @NonNull
+        SimplePromise<String> call(String action, Map<String, Object> parameters, Callback callback, Activity activity);
+    }
+
+    private final Map<Lane, Executor> laneExecutors = new EnumMap<>(Lane.class);
+
+    private final CallHandler callHandler;
+
+    /**
+     * Reads waiting for writes to run, in dispatch order. Guarded by this.
+     */
+    private final ArrayDeque<PendingRead> readsWaitingForWrites = new ArrayDeque<>();
+
+    /**
+     * Number of {@link Lane#SERIAL} tasks dispatched and run. Guarded by this.
+     */
+    private long dispatchedWriteCount = 0;
+    private long completedWriteCount = 0;
+
+    /**
+     * @param executor    Executor backing all lanes. Should be able to run more than one task at once
+     *                    for {@link Lane#CONCURRENT} actions to actually run concurrently.
+     * @param callHandler Handler of the dispatched calls
+     */
+    public BridgeDispatcher(@NonNull Executor executor, @NonNull CallHandler callHandler) {
+        this.callHandler = callHandler;
+        laneExecutors.put(Lane.SERIAL, new SerialExecutor(executor));
+        laneExecutors.put(Lane.INBOX, new SerialExecutor(executor));
+        laneExecutors.put(Lane.CONCURRENT, executor);
+    }
+
+    /**
+     * Override the executor used for a lane. Ordered lanes will still be made serial.
+     */
+    public synchronized BridgeDispatcher setLaneExecutor(@NonNull Lane lane, @NonNull Executor executor) {
+        laneExecutors.put(lane, lane == Lane.CONCURRENT ? executor : new SerialExecutor(executor));
+        return this;
+    }
+
+    /**
+     * Asynchronous version of the call handler.
+     * The returned promise resolves on the lane's executor.
+     */
+    @NonNull
+    public SimplePromise<String> dispatch(final String action, final Map<String, Object> parameters, final Callback callback, final Activity activity) {
+        if (Action.BATCH.getName().equalsIgnoreCase(action) && parameters != null && parameters.get("calls") instanceof List) {
+            return dispatchBatch((List<?>) parameters.get("calls"), callback, activity);
+        }
+
+        final SimplePromise<String> result = new SimplePromise<>();
+        final Lane lane = laneForAction(action);
+        final Executor executor;
+        synchronized (this) {
+            executor = laneExecutors.get(lane);
+        }
+
+        if (BridgeMetrics.isEnabled()) {
+            BridgeMetrics.onCallDispatched(lane);
+            result.then(value -> BridgeMetrics.onDispatchedCallDone(lane));
+        }
+
+        final Runnable task = () -> {
+            try {
+                callHandler.call(action, parameters, callback, activity).then(result::resolve);
+            } catch (Exception e) {
+                // Bridge.call already catches the bridge errors, this is only a safety net so
+                // that the promise is always resolved
+                Log.e(TAG, "Batch bridge dispatcher raised an exception", e);
+                result.resolve("");
+            }
+        };
+
+        if (lane == Lane.SERIAL) {
+            synchronized (this) {
+                dispatchedWriteCount++;
+            }
+            execute(executor, () -> {
+                try {
+                    task.run();
+                } finally {
+                    onWriteCompleted();
+                }
+            }, action, result);
+        } else {
+            if (lane == Lane.CONCURRENT) {
+                synchronized (this) {
+                    if (completedWriteCount < dispatchedWriteCount) {
+                        readsWaitingForWrites.add(new PendingRead(dispatchedWriteCount, task, action, result));
+                        return result;
+                    }
+                }
+            }
+            execute(executor, task, action, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Dispatches a list of {action, parameters} calls, in order, and resolves with a JSON array of
+     * their results in the same order. Each result is exactly what dispatching that call on its own
+     * would have resolved with, errors included.
+     * <p>
+     * Calls are forwarded as is: if the wrapper has special handling for some actions
+     * (such as start), it should not batch them.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private SimplePromise<String> dispatchBatch(@NonNull List<?> calls, final Callback callback, final Activity activity) {
+        final long startTime = System.nanoTime();
+        final int callCount = calls.size();
+        final SimplePromise<String> batchPromise = new SimplePromise<>();
+        if (callCount == 0) {
+            batchPromise.resolve("[]");
+        } else {
+            final String[] results = new String[callCount];
+            final AtomicInteger remainingCalls = new AtomicInteger(callCount);
+
+            for (int i = 0; i < callCount; i++) {
+                final int callIndex = i;
+                final Object rawCall = calls.get(i);
+
+                String callAction = null;
+                Map<String, Object> callParameters = null;
+                if (rawCall instanceof Map) {
+                    callAction = BridgeUtils.getOptionalTypedParameter((Map<String, Object>) rawCall, "action", String.class, null);
+                    callParameters = BridgeUtils.getOptionalTypedParameter((Map<String, Object>) rawCall, "parameters", Map.class, null);
+                }
+                if (callParameters == null) {
+                    callParameters = new HashMap<>();
+                }
+
+                // An invalid call is reported to the callback and resolves with an empty result, like a single call would
+                dispatch(callAction, callParameters, callback, activity).then(value -> {
+                    results[callIndex] = value;
+                    if (remainingCalls.decrementAndGet() == 0) {
+                        batchPromise.resolve(JSONHelper.toJSONString(Arrays.asList(results)));
+                    }
+                });
+            }
+        }
+
+        if (BridgeMetrics.isEnabled()) {
+            BridgeMetrics.recordCall(Action.BATCH.getName(), startTime, batchPromise, false);
+        }
+        return batchPromise;
+    }
+
+    /**
+     * Releases the reads that were only waiting for the writes run so far
+     */
+    private void onWriteCompleted() {
+        final List<PendingRead> releasedReads = new ArrayList<>();
+        final Executor executor;
+        synchronized (this) {
+            completedWriteCount++;
+            while (!readsWaitingForWrites.isEmpty() && readsWaitingForWrites.peek().requiredWriteCount <= completedWriteCount) {
+                releasedReads.add(readsWaitingForWrites.poll());
+            }
+            executor = laneExecutors.get(Lane.CONCURRENT);
+        }
+        for (PendingRead read : releasedReads) {
+            execute(executor, read.task, read.action, read.result);
+        }
+    }
+
+    private static void execute(@NonNull Executor executor, @NonNull Runnable task, String action, @NonNull SimplePromise<String> result) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Only the concurrent lane can reject: ordered lanes keep the task until they can schedule it
+            Log.e(TAG, "Batch bridge dispatcher could not schedule '" + action + "'", e);
+            result.resolve("");
+        }
+    }
+
+    @NonNull
+    static Lane laneForAction(String actionName) {
+        final Action action;
+        try {
+            action = Action.fromName(actionName);
+        } catch (IllegalArgumentException e) {
+            // Let the bridge report the error, in order
+            return Lane.SERIAL;
+        }
+        return laneForAction(action);
+    }
+
+    @NonNull
+    static Lane laneForAction(@NonNull Action action) {
+        switch (action) {
+            case IS_OPTED_OUT:
+            case PUSH_GET_LAST_KNOWN_TOKEN:
+            case USER_GET_INSTALLATION_ID:
+            case USER_GET_LANGUAGE:
+            case USER_GET_REGION:
+            case USER_GET_IDENTIFIER:
+            case USER_FETCH_ATTRIBUTES:
+            case USER_FETCH_TAGS:
+            case USER_GET_CACHE_STATS:
+            case PUSH_DEBUG_GET_TIMINGS:
+            case DEBUG_METRICS:
+                return Lane.CONCURRENT;
+            case INBOX_CREATE_INSTALLATION_FETCHER:
+            case INBOX_CREATE_USER_FETCHER:
+            case INBOX_RELEASE_FETCHER:
+            case INBOX_FETCH_NEW_NOTIFICATIONS:
+            case INBOX_FETCH_NEXT_PAGE:
+            case INBOX_GET_FETCHED_NOTIFICATIONS:
+            case INBOX_MARK_AS_READ:
+            case INBOX_MARK_ALL_AS_READ:
+            case INBOX_MARK_AS_DELETED:
+            case INBOX_DISPLAY_LANDING_MESSAGE:
+                return Lane.INBOX;
+            default:
+                return Lane.SERIAL;
+        }
+    }
+
+    /**
+     * A {@link Lane#CONCURRENT} task waiting for the writes dispatched before it
+     */
+    private static class PendingRead {
+        final long requiredWriteCount;
+        final Runnable task;
+        final String action;
+        final SimplePromise<String> result;
+
+        PendingRead(long requiredWriteCount, Runnable task, String action, SimplePromise<String> result) {
+            this.requiredWriteCount = requiredWriteCount;
+            this.task = task;
+            this.action = action;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Executor running tasks one at a time, in submission order, on a backing executor
+     */
+    private static class SerialExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private final Executor backingExecutor;
+        private Runnable active;
+
+        SerialExecutor(Executor backingExecutor) {
+            this.backingExecutor = backingExecutor;
+        }
+
+        @Override
+        public synchronized void execute(@NonNull Runnable runnable) {
+            tasks.add(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            active = tasks.poll();
+            if (active != null) {
+                try {
+                    backingExecutor.execute(active);
+                } catch (RuntimeException e) {
+                    // Don't leave the lane marked as busy forever: put the task back, the next
+                    // submission will try to schedule it again
+                    Log.e(TAG, "Batch bridge lane could not schedule a task, it will be retried on the next call", e);
+                    tasks.addFirst(active);
+                    active = null;
+                }
+            }
+        }
+    }
+}
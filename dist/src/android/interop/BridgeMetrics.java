@@ -0,0 +1,370 @@
+package com.batch.cordova.android.interop;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in metrics of the bridge: per action and per plugin callback call counts, latency histograms,
+ * serialized payload sizes and error counts, along with the number of pending calls per dispatcher lane.
+ * <p>
+ * Metrics are disabled by default, and are enabled using the {@link Action#DEBUG_METRICS} action, which also
+ * returns a snapshot of them. They can also be periodically dumped to logcat.
+ * Recording never locks: all counters are atomic, and histograms are arrays of atomic counters.
+ */
+public final class BridgeMetrics {
+    private static final String TAG = "BatchBridge";
+
+    private static volatile boolean enabled = false;
+
+    private static final Map<Action, OperationMetrics> actionMetrics = new EnumMap<>(Action.class);
+
+    private static final OperationMetrics unknownActionMetrics = new OperationMetrics();
+
+    private static final ConcurrentHashMap<String, OperationMetrics> callbackMetrics = new ConcurrentHashMap<>();
+
+    private static final Map<BridgeDispatcher.Lane, PendingGauge> pendingCalls = new EnumMap<>(BridgeDispatcher.Lane.class);
+
+    private static final Object logLock = new Object();
+
+    private static ScheduledExecutorService logExecutor;
+
+    private static ScheduledFuture<?> logTask;
+
+    static {
+        // Filled once, so that lookups don't need any synchronization
+        for (Action action : Action.values()) {
+            actionMetrics.put(action, new OperationMetrics());
+        }
+        for (BridgeDispatcher.Lane lane : BridgeDispatcher.Lane.values()) {
+            pendingCalls.put(lane, new PendingGauge());
+        }
+    }
+
+    private BridgeMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record a bridge call, once its result promise resolves
+     *
+     * @param startTime {@link System#nanoTime()} when the call started
+     * @param failed    Whether the call threw. Errors returned by {@link BridgeUtils#convertModernPromiseToLegacy(SimplePromise)}
+     *                  are detected automatically.
+     */
+    static void recordCall(@Nullable String actionName, long startTime, @NonNull SimplePromise<String> result, boolean failed) {
+        OperationMetrics metrics = unknownActionMetrics;
+        if (actionName != null) {
+            try {
+                metrics = actionMetrics.get(Action.fromName(actionName));
+            } catch (IllegalArgumentException ignored) {
+                // Unknown action, already reported by the bridge
+            }
+        }
+
+        final OperationMetrics callMetrics = metrics;
+        result.then(value -> {
+            final boolean isError = failed || (result instanceof BridgeUtils.LegacyPromise && ((BridgeUtils.LegacyPromise) result).isError());
+            callMetrics.record(startTime, value != null ? value.length() : 0, isError);
+        });
+    }
+
+    /**
+     * Record a callback sent to the plugin
+     *
+     * @param startTime {@link System#nanoTime()} when the callback started being serialized
+     * @param size      Size of the serialized callback
+     */
+    public static void recordCallback(@NonNull String callbackName, long startTime, int size) {
+        // A concurrent reset() may clear the map at any time: only use the instance we got from it
+        callbackMetrics.computeIfAbsent(callbackName, name -> new OperationMetrics()).record(startTime, size, false);
+    }
+
+    static void onCallDispatched(@NonNull BridgeDispatcher.Lane lane) {
+        pendingCalls.get(lane).increment();
+    }
+
+    static void onDispatchedCallDone(@NonNull BridgeDispatcher.Lane lane) {
+        pendingCalls.get(lane).decrement();
+    }
+
+    /**
+     * Enable or disable the metrics, and periodically dump them to logcat
+     *
+     * @param logIntervalMs Interval between two dumps. 0 to stop dumping.
+     */
+    static void configure(boolean enable, long logIntervalMs) {
+        enabled = enable;
+
+        synchronized (logLock) {
+            if (logTask != null) {
+                logTask.cancel(false);
+                logTask = null;
+            }
+
+            if (enable && logIntervalMs > 0) {
+                if (logExecutor == null) {
+                    logExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "BatchBridgeMetrics");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                logTask = logExecutor.scheduleAtFixedRate(
+                        () -> Log.i(TAG, "Bridge metrics: " + JSONHelper.toJSONString(getSnapshot(null))),
+                        logIntervalMs, logIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    static void reset() {
+        for (OperationMetrics metrics : actionMetrics.values()) {
+            metrics.reset();
+        }
+        unknownActionMetrics.reset();
+        callbackMetrics.clear();
+        for (PendingGauge gauge : pendingCalls.values()) {
+            gauge.resetMax();
+        }
+        PushTimings.reset();
+    }
+
+    /**
+     * Get a snapshot of all metrics. Operations that were never recorded are left out.
+     *
+     * @param inboxMetrics Metrics of the inbox bridge to add to the snapshot, if any
+     */
+    @NonNull
+    static Map<String, Object> getSnapshot(@Nullable Map<String, Object> inboxMetrics) {
+        final Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("enabled", enabled);
+
+        final Map<String, Object> actions = new HashMap<>();
+        for (Map.Entry<Action, OperationMetrics> entry : actionMetrics.entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                actions.put(entry.getKey().getName(), entry.getValue().getSnapshot());
+            }
+        }
+        if (unknownActionMetrics.getCount() > 0) {
+            actions.put("unknown", unknownActionMetrics.getSnapshot());
+        }
+        snapshot.put("actions", actions);
+
+        final Map<String, Object> callbacks = new HashMap<>();
+        for (Map.Entry<String, OperationMetrics> entry : callbackMetrics.entrySet()) {
+            callbacks.put(entry.getKey(), entry.getValue().getSnapshot());
+        }
+        snapshot.put("callbacks", callbacks);
+
+        final Map<String, Object> pending = new HashMap<>();
+        for (Map.Entry<BridgeDispatcher.Lane, PendingGauge> entry : pendingCalls.entrySet()) {
+            pending.put(entry.getKey().name().toLowerCase(), entry.getValue().getSnapshot());
+        }
+        snapshot.put("pendingCalls", pending);
+
+        snapshot.put("push", PushTimings.getSnapshot());
+
+        if (inboxMetrics != null) {
+            snapshot.put("inbox", inboxMetrics);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Metrics of an action or callback
+     */
+    private static class OperationMetrics {
+        private final AtomicLong count = new AtomicLong(0);
+
+        private final AtomicLong errorCount = new AtomicLong(0);
+
+        private final AtomicLong totalSize = new AtomicLong(0);
+
+        private final AtomicLong maxSize = new AtomicLong(0);
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        void record(long startTime, int size, boolean error) {
+            count.incrementAndGet();
+            if (error) {
+                errorCount.incrementAndGet();
+            }
+            totalSize.addAndGet(size);
+            updateMax(maxSize, size);
+            latencies.record((System.nanoTime() - startTime) / 1000);
+        }
+
+        long getCount() {
+            return count.get();
+        }
+
+        void reset() {
+            count.set(0);
+            errorCount.set(0);
+            totalSize.set(0);
+            maxSize.set(0);
+            latencies.reset();
+        }
+
+        @NonNull
+        Map<String, Object> getSnapshot() {
+            final long count = this.count.get();
+            final Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("count", count);
+            snapshot.put("errors", errorCount.get());
+            snapshot.put("averageSize", count > 0 ? totalSize.get() / count : 0);
+            snapshot.put("maxSize", maxSize.get());
+            snapshot.put("latencyMicros", latencies.getSnapshot());
+            return snapshot;
+        }
+    }
+
+    /**
+     * Number of pending calls, and the highest it has been
+     */
+    private static class PendingGauge {
+        private final AtomicInteger current = new AtomicInteger(0);
+
+        private final AtomicLong max = new AtomicLong(0);
+
+        void increment() {
+            updateMax(max, current.incrementAndGet());
+        }
+
+        void decrement() {
+            current.decrementAndGet();
+        }
+
+        void resetMax() {
+            max.set(current.get());
+        }
+
+        @NonNull
+        Map<String, Object> getSnapshot() {
+            final Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("current", current.get());
+            snapshot.put("max", max.get());
+            return snapshot;
+        }
+    }
+
+    /**
+     * Histogram of durations, in microseconds, with a bounded relative error.
+     * <p>
+     * Like HDR histograms, buckets are linear up to {@link #LINEAR_LIMIT}, then each power of two is split in
+     * {@link #SUB_BUCKETS} buckets: percentiles are accurate within 12.5%, using a fixed amount of memory.
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 3;
+
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+        // Values up to 2^40µs (about 12 days) get their own bucket, bigger ones go in the last one
+        static final int MAX_EXPONENT = 40;
+
+        static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+        private final AtomicLong count = new AtomicLong(0);
+
+        private final AtomicLong max = new AtomicLong(0);
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(bucketIndex(value));
+            count.incrementAndGet();
+            updateMax(max, value);
+        }
+
+        static int bucketIndex(long value) {
+            if (value < LINEAR_LIMIT) {
+                return (int) value;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            final int index = LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+            return Math.min(index, BUCKET_COUNT - 1);
+        }
+
+        /**
+         * Lowest value that goes in a bucket
+         */
+        static long bucketLowerBound(int index) {
+            if (index < LINEAR_LIMIT) {
+                return index;
+            }
+            final int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+            final int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            max.set(0);
+        }
+
+        @NonNull
+        Map<String, Object> getSnapshot() {
+            final long[] counts = new long[BUCKET_COUNT];
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+
+            final Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("p50", valueAtPercentile(counts, total, 50));
+            snapshot.put("p90", valueAtPercentile(counts, total, 90));
+            snapshot.put("p99", valueAtPercentile(counts, total, 99));
+            snapshot.put("max", max.get());
+            return snapshot;
+        }
+
+        static long valueAtPercentile(@NonNull long[] counts, long total, double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketLowerBound(i);
+                }
+            }
+            return bucketLowerBound(counts.length - 1);
+        }
+    }
+
+    private static void updateMax(@NonNull AtomicLong max, long value) {
+        long currentMax;
+        do {
+            currentMax = max.get();
+        } while (value > currentMax && !max.compareAndSet(currentMax, value));
+    }
+}
@@ -1,23 +1,22 @@
 package com.batch.cordova.android.interop;
 
-import android.util.Log;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.batch.android.BatchEventAttributes;
-import com.batch.android.json.JSONException;
-import com.batch.android.json.JSONObject;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class BridgeUtils {
 
+    private static final int LEGACY_ERROR_CODE = -1101;
+
     @NonNull
     @SuppressWarnings("unchecked")
     static <T> T getTypedParameter(Map<String, Object> parameters, String parameterName, Class<T> parameterClass) throws BridgeException {
@@ -119,35 +118,46 @@ public class BridgeUtils {
     // To do this, it serializes Maps (arrays and numbers are not supported) to JSON strings
     // and also wraps errors as the Bridge doesn't support catching and expects the Promise to always
     // be resolved with a JSON message, even if it's an error object.
-    @SuppressWarnings({"unchecked", "rawtypes"})
+    // The returned promise is a LegacyPromise, which remembers whether it carries an error.
     @NonNull
     public static SimplePromise<String> convertModernPromiseToLegacy(@NonNull SimplePromise<Object> originalPromise) {
-        SimplePromise<String> resultPromise = new SimplePromise<>();
+        LegacyPromise resultPromise = new LegacyPromise();
 
         originalPromise.then(value -> {
-            Object finalValue = value;
             if (value instanceof Map) {
-                try {
-                    finalValue = JSONHelper.fromMap((Map) value);
-                } catch (JSONException e) {
-                    Log.d("BatchBridge", "Could not convert error", e);
-                    finalValue = "{'error':'Internal native error (-1100)', 'code': -1100}";
-                }
+                // Serialized straight to a string, without building an intermediate JSONObject
+                resultPromise.resolve(JSONHelper.toJSONString(value));
+                return;
             }
-            resultPromise.resolve(finalValue != null ? finalValue.toString() : null);
+            resultPromise.resolve(value != null ? value.toString() : null);
         });
         originalPromise.catchException(e -> {
-            String finalValue;
-            try {
-                JSONObject errorObject = new JSONObject();
-                errorObject.put("error", e.getMessage());
-                errorObject.put("code", -1101); // Error codes are not yet supported on Android
-                finalValue = errorObject.toString();
-            } catch (JSONException jsonException) {
-                finalValue = "{'error':'Internal native error (-1200)', 'code': -1200}";
-            }
-            resultPromise.resolve(finalValue);
+            Map<String, Object> errorObject = new HashMap<>(2);
+            errorObject.put("error", e.getMessage());
+            errorObject.put("code", LEGACY_ERROR_CODE); // Error codes are not yet supported on Android
+            resultPromise.resolveWithError(JSONHelper.toJSONString(errorObject));
         });
         return resultPromise;
     }
+
+    /**
+     * Promise returned by {@link #convertModernPromiseToLegacy(SimplePromise)}.
+     * Errors resolve it like any other result, but are flagged, so that they can be told apart without
+     * parsing the result back.
+     */
+    static final class LegacyPromise extends SimplePromise<String> {
+        private volatile boolean error = false;
+
+        void resolveWithError(String errorJSON) {
+            error = true;
+            resolve(errorJSON);
+        }
+
+        /**
+         * Whether the promise resolved with an error object
+         */
+        boolean isError() {
+            return error;
+        }
+    }
 }
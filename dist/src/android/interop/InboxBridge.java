@@ -9,19 +9,16 @@ import android.content.Context;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.batch.android.Batch;
 import com.batch.android.BatchInboxFetcher;
 import com.batch.android.BatchInboxNotificationContent;
-import com.batch.android.json.JSONException;
-import com.batch.android.json.JSONObject;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The InboxBridge's job is to retain {@link com.batch.android.BatchInboxFetcher} instances
@@ -29,14 +26,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * It will also handle calls and dispatch them to the appropriate fetcher, handling all inbox
  * related calls.
  *
- * This can lead to memory leaks if the memory isn't freed, as this object will retain instances
- * indefinitely. Make sure to expose a method on the plugin side to tell this class to release a
- * fetcher.
+ * Retained fetchers should be released by the plugin once they're not needed anymore. As a safety
+ * net, the number of retained fetchers is bounded and idle ones are evicted: see {@link InboxFetcherRegistry}.
+ * Evictions are reported to the plugin using the {@link Result#INBOX_FETCHER_EVICTED} callback.
  */
 class InboxBridge {
     private static final String TAG = "BatchCordovaPlugin";
 
-    Map<String, BatchInboxFetcher> fetchers = new ConcurrentHashMap<>();
+    final InboxFetcherRegistry fetchers = new InboxFetcherRegistry();
 
     @NonNull
     SimplePromise<Object> doAction(@NonNull Action action, @NonNull Map<String, Object> parameters, @NonNull Activity activity) throws BridgeException, BatchBridgeNotImplementedException {
@@ -69,8 +66,34 @@ class InboxBridge {
 
     // Translates doAction's Promise to a "legacy" bridge one (for older base bridges)
     @NonNull
-    SimplePromise<String> compatDoAction(@NonNull Action action, @NonNull Map<String, Object> parameters, @NonNull Activity activity) throws BridgeException, BatchBridgeNotImplementedException {
-        return convertModernPromiseToLegacy(doAction(action, parameters, activity));
+    SimplePromise<String> compatDoAction(@NonNull Action action, @NonNull Map<String, Object> parameters, @NonNull Activity activity, @Nullable Callback callback) throws BridgeException, BatchBridgeNotImplementedException {
+        try {
+            return convertModernPromiseToLegacy(doAction(action, parameters, activity));
+        } finally {
+            reportEvictedFetchers(callback);
+        }
+    }
+
+    /**
+     * Retained fetchers metrics, for {@link BridgeMetrics}
+     */
+    @NonNull
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("retainedFetchers", fetchers.size());
+        metrics.put("evictedFetchers", fetchers.getEvictionCount());
+        return metrics;
+    }
+
+    private void reportEvictedFetchers(@Nullable Callback callback) {
+        for (String evictedFetcherID : fetchers.drainEvictedFetcherIDs()) {
+            Log.w(TAG, "Inbox fetcher " + evictedFetcherID + " has been evicted: too many fetchers retained, or unused for too long.");
+            if (callback != null) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("fetcherID", evictedFetcherID);
+                callback.callback(Result.INBOX_FETCHER_EVICTED.getName(), result);
+            }
+        }
     }
 
     @NonNull
@@ -128,28 +151,32 @@ class InboxBridge {
     }
 
     @NonNull
-    private BatchInboxFetcher getFetcherInstance(@NonNull Map<String, Object> parameters) throws BridgeException {
-        BatchInboxFetcher fetcher = fetchers.get(getTypedParameter(parameters, "fetcherID", String.class));
+    private InboxFetcherRegistry.Entry getFetcherEntry(@NonNull Map<String, Object> parameters) throws BridgeException {
+        InboxFetcherRegistry.Entry entry = fetchers.get(getTypedParameter(parameters, "fetcherID", String.class));
 
-        if (fetcher == null) {
+        if (entry == null) {
             throw new BridgeException("The native inbox fetcher backing this object could not be found." +
                     "Did you call 'dispose()' on this BatchInboxFetcher and attempted to use it afterwards?",
                     null);
         }
 
-        return fetcher;
+        return entry;
     }
 
     private SimplePromise<Object> fetchNewNotifications(@NonNull Map<String, Object> parameters) throws BridgeException {
-        final BatchInboxFetcher fetcher = getFetcherInstance(parameters);
+        final InboxFetcherRegistry.Entry fetcherEntry = getFetcherEntry(parameters);
+        final BatchInboxFetcher fetcher = fetcherEntry.fetcher;
 
         return new SimplePromise<>(promise -> fetcher.fetchNewNotifications(new BatchInboxFetcher.OnNewNotificationsFetchedListener() {
             @Override
             public void onFetchSuccess(@NonNull List<BatchInboxNotificationContent> list, boolean foundNewNotifications, boolean endReached) {
+                // Fetching new notifications may replace the previously fetched ones.
+                // The new ones are part of them: adding them only reads back their cached entries.
+                fetcherEntry.notifications.reset(fetcher.getFetchedNotifications());
                 Map<String, Object> response = new HashMap<>();
                 response.put("foundNew", foundNewNotifications);
                 response.put("endReached", endReached);
-                response.put("notifications", serializeNotificationsForBridge(list));
+                response.put("notifications", fetcherEntry.notifications.add(list));
                 promise.resolve(response);
             }
 
@@ -161,14 +188,15 @@ class InboxBridge {
     }
 
     private SimplePromise<Object> fetchNextPage(@NonNull Map<String, Object> parameters) throws BridgeException {
-        final BatchInboxFetcher fetcher = getFetcherInstance(parameters);
+        final InboxFetcherRegistry.Entry fetcherEntry = getFetcherEntry(parameters);
+        final BatchInboxFetcher fetcher = fetcherEntry.fetcher;
 
         return new SimplePromise<>(promise -> fetcher.fetchNextPage(new BatchInboxFetcher.OnNextPageFetchedListener() {
             @Override
             public void onFetchSuccess(@NonNull List<BatchInboxNotificationContent> list, boolean endReached) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("endReached", endReached);
-                response.put("notifications", serializeNotificationsForBridge(list));
+                response.put("notifications", fetcherEntry.notifications.add(list));
                 promise.resolve(response);
             }
 
@@ -180,22 +208,17 @@ class InboxBridge {
     }
 
     private SimplePromise<Object> markAsRead(@NonNull Map<String, Object> parameters) throws BridgeException {
-        final BatchInboxFetcher fetcher = getFetcherInstance(parameters);
+        final InboxFetcherRegistry.Entry fetcherEntry = getFetcherEntry(parameters);
+        final BatchInboxFetcher fetcher = fetcherEntry.fetcher;
 
         final String notificationID = getTypedParameter(parameters, "notifID", String.class);
 
         return new SimplePromise<>(promise -> {
-            List<BatchInboxNotificationContent> nativeNotifications = fetcher.getFetchedNotifications();
-            BatchInboxNotificationContent notificationToMark = null;
-            for (BatchInboxNotificationContent nativeNotification : nativeNotifications) {
-                if (nativeNotification.getNotificationIdentifier().equals(notificationID)) {
-                    notificationToMark = nativeNotification;
-                    break;
-                }
-            }
+            BatchInboxNotificationContent notificationToMark = fetcherEntry.notifications.getNotification(notificationID);
 
             if (notificationToMark != null) {
                 fetcher.markAsRead(notificationToMark);
+                fetcherEntry.notifications.markAsRead(notificationID);
             } else {
                 Log.e(TAG, "Could not mark notification as read: No matching native notification. This can happen if you kept a JavaScript instance of a notification but are trying to use it with another fetcher, or if the fetcher has been reset inbetween.");
             }
@@ -205,30 +228,26 @@ class InboxBridge {
     }
 
     private SimplePromise<Object> markAllAsRead(@NonNull Map<String, Object> parameters) throws BridgeException {
-        final BatchInboxFetcher fetcher = getFetcherInstance(parameters);
+        final InboxFetcherRegistry.Entry fetcherEntry = getFetcherEntry(parameters);
 
-        fetcher.markAllAsRead();
+        fetcherEntry.fetcher.markAllAsRead();
+        fetcherEntry.notifications.markAllAsRead();
 
         return SimplePromise.resolved(null);
     }
 
     private SimplePromise<Object> markAsDeleted(@NonNull Map<String, Object> parameters) throws BridgeException {
-        final BatchInboxFetcher fetcher = getFetcherInstance(parameters);
+        final InboxFetcherRegistry.Entry fetcherEntry = getFetcherEntry(parameters);
+        final BatchInboxFetcher fetcher = fetcherEntry.fetcher;
 
         final String notificationID = getTypedParameter(parameters, "notifID", String.class);
 
         return new SimplePromise<>(promise -> {
-            List<BatchInboxNotificationContent> nativeNotifications = fetcher.getFetchedNotifications();
-            BatchInboxNotificationContent notificationToMark = null;
-            for (BatchInboxNotificationContent nativeNotification : nativeNotifications) {
-                if (nativeNotification.getNotificationIdentifier().equals(notificationID)) {
-                    notificationToMark = nativeNotification;
-                    break;
-                }
-            }
+            BatchInboxNotificationContent notificationToMark = fetcherEntry.notifications.getNotification(notificationID);
 
             if (notificationToMark != null) {
                 fetcher.markAsDeleted(notificationToMark);
+                fetcherEntry.notifications.remove(notificationID);
             } else {
                 Log.e(TAG, "Could not mark notification as deleted: No matching native notification. This can happen if you kept a JavaScript instance of a notification but are trying to use it with another fetcher, or if the fetcher has been reset inbetween.");
             }
@@ -238,19 +257,12 @@ class InboxBridge {
     }
 
     private SimplePromise<Object> displayLandingMessage(@NonNull Context context, @NonNull Map<String, Object> parameters) throws BridgeException {
-        final BatchInboxFetcher fetcher = getFetcherInstance(parameters);
+        final InboxFetcherRegistry.Entry fetcherEntry = getFetcherEntry(parameters);
 
         final String notificationID = getTypedParameter(parameters, "notifID", String.class);
 
         return new SimplePromise<>(promise -> {
-            List<BatchInboxNotificationContent> nativeNotifications = fetcher.getFetchedNotifications();
-            BatchInboxNotificationContent notificationToDisplay = null;
-            for (BatchInboxNotificationContent nativeNotification : nativeNotifications) {
-                if (nativeNotification.getNotificationIdentifier().equals(notificationID)) {
-                    notificationToDisplay = nativeNotification;
-                    break;
-                }
-            }
+            BatchInboxNotificationContent notificationToDisplay = fetcherEntry.notifications.getNotification(notificationID);
 
             if (notificationToDisplay != null) {
                 notificationToDisplay.displayLandingMessage(context);
@@ -262,62 +274,11 @@ class InboxBridge {
         });
     }
 
+    // Returns the changes since the optional "cursor" parameter, see InboxNotificationCache.getChangesSince
     private SimplePromise<Object> getFetchedNotifications(@NonNull Map<String, Object> parameters) throws BridgeException {
-        final BatchInboxFetcher fetcher = getFetcherInstance(parameters);
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("notifications", serializeNotificationsForBridge(fetcher.getFetchedNotifications()));
-        return SimplePromise.resolved(response);
-    }
+        final InboxFetcherRegistry.Entry fetcherEntry = getFetcherEntry(parameters);
+        final Number cursor = getOptionalTypedParameter(parameters, "cursor", Number.class, null);
 
-    @NonNull
-    private List<Map<String, Object>> serializeNotificationsForBridge(@NonNull List<BatchInboxNotificationContent> nativeNotifications) {
-        List<Map<String, Object>> serializedNotifications = new ArrayList<>(nativeNotifications.size());
-
-        for (BatchInboxNotificationContent nativeNotification : nativeNotifications) {
-            //TODO: implement support for silent notifications
-            if (nativeNotification.isSilent()) {
-                continue;
-            }
-            Map<String, Object> serializedNotification = new HashMap<>();
-            serializedNotification.put("id", nativeNotification.getNotificationIdentifier());
-
-            serializedNotification.put("body", nativeNotification.getBody());
-            final String title = nativeNotification.getTitle();
-            if (title != null) {
-                serializedNotification.put("title", title);
-            }
-
-            serializedNotification.put("isUnread", nativeNotification.isUnread());
-            serializedNotification.put("date", nativeNotification.getDate().getTime());
-            int source = switch (nativeNotification.getSource()) {
-                case CAMPAIGN -> 1;
-                case TRANSACTIONAL -> 2;
-                case TRIGGER -> 3;
-                default -> 0; // UNKNOWN
-            };
-            serializedNotification.put("source", source);
-            serializedNotification.put("payload", pushPayloadToJSON(nativeNotification.getRawPayload()));
-            serializedNotification.put("hasLandingMessage", nativeNotification.hasLandingMessage());
-            serializedNotifications.add(serializedNotification);
-        }
-
-        return serializedNotifications;
-    }
-
-    private static JSONObject pushPayloadToJSON(Map<String, String> payload) {
-        try {
-            final JSONObject jsonPayload = new JSONObject();
-            for (String key : payload.keySet()) {
-                Object value = payload.get(key);
-                if (value == null) {
-                    continue;
-                }
-                jsonPayload.put(key, value);
-            }
-            return jsonPayload;
-        } catch(JSONException e) {
-            return new JSONObject();
-        }
+        return SimplePromise.resolved(fetcherEntry.notifications.getChangesSince(cursor));
     }
 }
@@ -0,0 +1,124 @@
+package com.batch.cordova.android.interop;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.batch.android.BatchInboxFetcher;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retains {@link BatchInboxFetcher} instances by ID, for {@link InboxBridge}.
+ * <p>
+ * The registry is bounded: when it is full, the least recently used fetcher is evicted. Fetchers that
+ * haven't been used for {@link #MAX_IDLE_TIME_MS} are evicted too, in case the plugin never released them.
+ * Evicted IDs are kept until {@link #drainEvictedFetcherIDs()} is called, so that they can be
+ * reported to the plugin.
+ */
+class InboxFetcherRegistry {
+    static final int DEFAULT_MAX_SIZE = 32;
+
+    static final long MAX_IDLE_TIME_MS = 30 * 60 * 1000;
+
+    private final int maxSize;
+
+    // Access ordered: iteration starts with the least recently used fetcher
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final List<String> evictedFetcherIDs = new ArrayList<>();
+
+    private volatile long evictionCount = 0;
+
+    InboxFetcherRegistry() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    InboxFetcherRegistry(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    synchronized void put(@NonNull String fetcherID, @NonNull BatchInboxFetcher fetcher) {
+        evictIdleEntries();
+        entries.put(fetcherID, new Entry(fetcher));
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            evictedFetcherIDs.add(iterator.next().getKey());
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    @Nullable
+    synchronized Entry get(@NonNull String fetcherID) {
+        evictIdleEntries();
+        Entry entry = entries.get(fetcherID);
+        if (entry != null) {
+            entry.lastAccessTime = SystemClock.elapsedRealtime();
+        }
+        return entry;
+    }
+
+    synchronized void remove(@NonNull String fetcherID) {
+        entries.remove(fetcherID);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the IDs of the fetchers evicted since the last call
+     */
+    @NonNull
+    synchronized List<String> drainEvictedFetcherIDs() {
+        if (evictedFetcherIDs.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        List<String> drainedIDs = new ArrayList<>(evictedFetcherIDs);
+        evictedFetcherIDs.clear();
+        return drainedIDs;
+    }
+
+    private void evictIdleEntries() {
+        final long now = SystemClock.elapsedRealtime();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (now - entry.getValue().lastAccessTime < MAX_IDLE_TIME_MS) {
+                // Entries are sorted by access time: the next ones are more recent
+                return;
+            }
+            evictedFetcherIDs.add(entry.getKey());
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * A retained fetcher, with its fetched notifications indexed by identifier
+     */
+    static class Entry {
+        @NonNull
+        final BatchInboxFetcher fetcher;
+
+        @NonNull
+        final InboxNotificationCache notifications = new InboxNotificationCache();
+
+        private volatile long lastAccessTime = SystemClock.elapsedRealtime();
+
+        Entry(@NonNull BatchInboxFetcher fetcher) {
+            this.fetcher = fetcher;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.batch.cordova.android.interop;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.batch.android.BatchInboxNotificationContent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notifications fetched by a retained inbox fetcher, indexed by identifier, along with their
+ * serialized bridge representation.
+ * <p>
+ * Notifications are serialized once, when fetched, and re-serialized only when their state changes.
+ * Only their serialized representation is kept, along with the SDK's instance.
+ * Every change bumps a version number, which the plugin can use as a cursor to only get what
+ * changed since its last call: see {@link #getChangesSince(Number)}.
+ */
+class InboxNotificationCache {
+    private final LinkedHashMap<String, CachedNotification> notifications = new LinkedHashMap<>();
+
+    // Identifier -> version at which the notification was deleted
+    private final Map<String, Long> deletions = new HashMap<>();
+
+    private long version = 0;
+
+    // Cursors older than this can't be used to compute a delta anymore
+    private long resetVersion = 0;
+
+    @Nullable
+    synchronized BatchInboxNotificationContent getNotification(@NonNull String notificationID) {
+        CachedNotification cachedNotification = notifications.get(notificationID);
+        return cachedNotification != null ? cachedNotification.content : null;
+    }
+
+    /**
+     * Replace all cached notifications, when the fetcher's notifications may have been replaced.
+     * Notifications that were already cached are kept as is, unless their state changed.
+     */
+    synchronized void reset(@NonNull List<BatchInboxNotificationContent> fetchedNotifications) {
+        final Map<String, CachedNotification> previousNotifications = new HashMap<>(notifications);
+        notifications.clear();
+        deletions.clear();
+        version++;
+        resetVersion = version;
+
+        for (BatchInboxNotificationContent content : fetchedNotifications) {
+            final CachedNotification cachedNotification = store(content, previousNotifications.get(content.getNotificationIdentifier()));
+            cachedNotification.version = version;
+        }
+    }
+
+    /**
+     * Add newly fetched notifications, such as a page
+     *
+     * @return The serialized representation of the given notifications, as cached, skipping the ones
+     * that can't be sent to the plugin
+     */
+    @NonNull
+    synchronized List<Object> add(@NonNull List<BatchInboxNotificationContent> fetchedNotifications) {
+        final long addVersion = version + 1;
+        final List<Object> serializedNotifications = new ArrayList<>(fetchedNotifications.size());
+        for (BatchInboxNotificationContent content : fetchedNotifications) {
+            final CachedNotification cachedNotification = store(content, notifications.get(content.getNotificationIdentifier()));
+            if (cachedNotification.version == 0) {
+                cachedNotification.version = addVersion;
+                version = addVersion;
+            }
+            if (cachedNotification.serialized != null) {
+                serializedNotifications.add(cachedNotification.serialized);
+            }
+        }
+        return serializedNotifications;
+    }
+
+    /**
+     * Cache a notification under its identifier, reusing the existing entry if its state didn't change
+     *
+     * @return The cached notification. Its version is 0 if it has just been created.
+     */
+    @NonNull
+    private CachedNotification store(@NonNull BatchInboxNotificationContent content, @Nullable CachedNotification existingNotification) {
+        CachedNotification cachedNotification = existingNotification;
+        if (cachedNotification != null && cachedNotification.hasSameState(content)) {
+            // Keep the SDK's latest instance around, as it is the one given back to the fetcher
+            cachedNotification.content = content;
+        } else {
+            cachedNotification = new CachedNotification(content);
+            deletions.remove(content.getNotificationIdentifier());
+        }
+        notifications.put(content.getNotificationIdentifier(), cachedNotification);
+        return cachedNotification;
+    }
+
+    synchronized void markAsRead(@NonNull String notificationID) {
+        CachedNotification cachedNotification = notifications.get(notificationID);
+        if (cachedNotification != null && cachedNotification.markAsRead()) {
+            version++;
+            cachedNotification.version = version;
+        }
+    }
+
+    synchronized void markAllAsRead() {
+        version++;
+        for (CachedNotification cachedNotification : notifications.values()) {
+            if (cachedNotification.markAsRead()) {
+                cachedNotification.version = version;
+            }
+        }
+    }
+
+    synchronized void remove(@NonNull String notificationID) {
+        if (notifications.remove(notificationID) != null) {
+            version++;
+            deletions.put(notificationID, version);
+        }
+    }
+
+    /**
+     * Get what changed since a cursor returned by a previous call.
+     * <p>
+     * The result contains the new cursor, "full" set to true and all notifications if the changes can't be
+     * computed from the given cursor, or "full" set to false, the notifications that have been added or updated
+     * since the cursor and the identifiers of the deleted ones.
+     * Notifications are always in the fetcher's order.
+     *
+     * @param cursor Previously returned cursor. null to get all notifications.
+     */
+    @NonNull
+    synchronized Map<String, Object> getChangesSince(@Nullable Number cursor) {
+        final Map<String, Object> result = new HashMap<>();
+        final boolean full = cursor == null || cursor.longValue() < resetVersion || cursor.longValue() > version;
+        final long since = full ? Long.MIN_VALUE : cursor.longValue();
+
+        final List<Object> changedNotifications = new ArrayList<>();
+        for (CachedNotification cachedNotification : notifications.values()) {
+            if (cachedNotification.serialized != null && cachedNotification.version > since) {
+                changedNotifications.add(cachedNotification.serialized);
+            }
+        }
+
+        result.put("notifications", changedNotifications);
+        result.put("cursor", version);
+        result.put("full", full);
+
+        if (!full) {
+            final List<String> deletedIDs = new ArrayList<>();
+            for (Map.Entry<String, Long> deletion : deletions.entrySet()) {
+                if (deletion.getValue() > since) {
+                    deletedIDs.add(deletion.getKey());
+                }
+            }
+            result.put("deletedIDs", deletedIDs);
+        }
+
+        return result;
+    }
+
+    private static class CachedNotification {
+        @NonNull
+        BatchInboxNotificationContent content;
+
+        // May differ from the content's state once marked as read
+        boolean isUnread;
+
+        // null for notifications that are not sent to the plugin
+        @Nullable
+        JSONHelper.SerializedValue serialized;
+
+        long version;
+
+        CachedNotification(@NonNull BatchInboxNotificationContent content) {
+            this.content = content;
+            this.isUnread = content.isUnread();
+            this.serialized = serialize(content, isUnread);
+        }
+
+        /**
+         * Whether a notification with the same identifier, fetched again, is represented by this entry.
+         * Only the read state of a notification can change once it has been fetched.
+         */
+        boolean hasSameState(@NonNull BatchInboxNotificationContent otherContent) {
+            return serialized == null || isUnread == otherContent.isUnread();
+        }
+
+        /**
+         * @return Whether the notification changed
+         */
+        boolean markAsRead() {
+            if (serialized == null || !isUnread) {
+                return false;
+            }
+            isUnread = false;
+            serialized = serialize(content, false);
+            return true;
+        }
+
+        @Nullable
+        private static JSONHelper.SerializedValue serialize(@NonNull BatchInboxNotificationContent content, boolean isUnread) {
+            // Only the serialized string is kept: the map would be a second copy of the notification
+            final Map<String, Object> fields = serializeNotificationForBridge(content, isUnread);
+            return fields != null ? JSONHelper.SerializedValue.of(fields) : null;
+        }
+    }
+
+    @Nullable
+    private static Map<String, Object> serializeNotificationForBridge(@NonNull BatchInboxNotificationContent nativeNotification, boolean isUnread) {
+        //TODO: implement support for silent notifications
+        if (nativeNotification.isSilent()) {
+            return null;
+        }
+        Map<String, Object> serializedNotification = new HashMap<>();
+        serializedNotification.put("id", nativeNotification.getNotificationIdentifier());
+
+        serializedNotification.put("body", nativeNotification.getBody());
+        final String title = nativeNotification.getTitle();
+        if (title != null) {
+            serializedNotification.put("title", title);
+        }
+
+        serializedNotification.put("isUnread", isUnread);
+        serializedNotification.put("date", nativeNotification.getDate().getTime());
+        int source = switch (nativeNotification.getSource()) {
+            case CAMPAIGN -> 1;
+            case TRANSACTIONAL -> 2;
+            case TRIGGER -> 3;
+            default -> 0; // UNKNOWN
+        };
+        serializedNotification.put("source", source);
+        serializedNotification.put("payload", pushPayloadToBridge(nativeNotification.getRawPayload()));
+        serializedNotification.put("hasLandingMessage", nativeNotification.hasLandingMessage());
+        return serializedNotification;
+    }
+
+    @NonNull
+    private static Map<String, Object> pushPayloadToBridge(@NonNull Map<String, String> payload) {
+        final Map<String, Object> bridgePayload = new HashMap<>(payload.size());
+        for (Map.Entry<String, String> entry : payload.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            bridgePayload.put(entry.getKey(), entry.getValue());
+        }
+        return bridgePayload;
+    }
+}
@@ -6,7 +6,6 @@ import com.batch.android.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -15,107 +14,534 @@ import java.util.Map;
  */
 public class JSONHelper
 {
-	public static Map<String, Object> toMap(String jsonString) throws JSONException
-	{
-		final JSONObject json = new JSONObject(jsonString);
-		return jsonObjectToMap(json);
-	}
+	/**
+	 * Builders above this capacity are not kept around for reuse, so that one huge message
+	 * doesn't pin its buffer in memory for the lifetime of the thread.
+	 * Large enough for an inbox page of a couple hundred notifications.
+	 */
+	static final int MAX_REUSED_BUILDER_CAPACITY = 256 * 1024;
 
-	public static List<Object> toList(String jsonString) throws JSONException
+	/**
+	 * Builder reused by {@link #toJSONString(Object)} on each thread.
+	 * It is taken out while in use: a nested call, such as a toString() that serializes JSON itself,
+	 * finds no builder and allocates its own instead of overwriting the one being written to.
+	 */
+	private static final ThreadLocal<StringBuilder> reusableBuilder = new ThreadLocal<>();
+
+	/**
+	 * Serializes a value made of {@link java.util.Map}, {@link java.lang.Iterable}, strings, numbers,
+	 * booleans and nulls to a JSON string in a single pass, without building an intermediate
+	 * {@link JSONObject} tree.
+	 * Already built {@link JSONObject}, {@link JSONArray} and {@link SerializedValue} values are written as is.
+	 * @param value Value to serialize
+	 * @return JSON string
+	 */
+	public static String toJSONString(Object value)
 	{
-		final JSONArray json = new JSONArray(jsonString);
-		return jsonArrayToArray(json);
+		StringBuilder builder = reusableBuilder.get();
+		if (builder != null)
+		{
+			reusableBuilder.set(null);
+			builder.setLength(0);
+		}
+		else
+		{
+			builder = new StringBuilder(512);
+		}
+
+		try
+		{
+			writeValue(builder, value);
+			return builder.toString();
+		}
+		finally
+		{
+			if (builder.capacity() <= MAX_REUSED_BUILDER_CAPACITY)
+			{
+				reusableBuilder.set(builder);
+			}
+		}
 	}
 
-	public static JSONObject fromMap(Map<String, Object> map) throws JSONException
+	/**
+	 * A value that has already been serialized to JSON.
+	 * {@link #toJSONString(Object)} writes it as is, so it can be cached and embedded in other values.
+	 */
+	public static final class SerializedValue
 	{
-		final JSONObject json = new JSONObject();
-		for (String key : map.keySet())
+		private final String json;
+
+		private SerializedValue(String json)
+		{
+			this.json = json;
+		}
+
+		/**
+		 * Serialize a value once, to embed it in other values later
+		 */
+		public static SerializedValue of(Object value)
 		{
-			json.put(key, fromObject(map.get(key)));
+			return new SerializedValue(toJSONString(value));
+		}
+
+		/**
+		 * Wrap a string that already is valid JSON, such as one previously returned by {@link #toJSONString(Object)}
+		 */
+		public static SerializedValue fromJSON(String json)
+		{
+			return new SerializedValue(json);
+		}
+
+		@Override
+		public String toString()
+		{
+			return json;
 		}
-		return json;
 	}
 
 	/**
-	 * Transforms {@link org.json.JSONObject} and {@link org.json.JSONArray} to {@link java.util.Map} and {@link java.lang.Iterable}
-	 * If transformation is not needed, returns the original object. Useful for JSON deserialization
-	 * @param object Object to transform
-	 * @return Transformed object, if necessary
+	 * Parses the first element of a JSON array, as sent by Cordova for plugin arguments.
+	 * The rest of the array is not read.
+	 * @param jsonArrayString JSON array string
+	 * @return The first element, as {@link java.util.Map}, {@link java.util.List} or a primitive. null if the array is empty.
 	 * @throws JSONException
 	 */
-	private static Object jsonObjectToObject(Object object) throws JSONException
+	public static Object readFirstArrayElement(String jsonArrayString) throws JSONException
 	{
-		if (object == JSONObject.NULL)
+		final Reader reader = new Reader(jsonArrayString);
+		reader.skipWhitespace();
+		reader.expect('[');
+		reader.skipWhitespace();
+		if (reader.peek() == ']')
 		{
 			return null;
 		}
-		else if (object instanceof JSONObject)
+		return reader.readValue();
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static void writeValue(StringBuilder builder, Object value)
+	{
+		if (value == null || value == JSONObject.NULL)
+		{
+			builder.append("null");
+		}
+		else if (value instanceof String)
+		{
+			writeString(builder, (String) value);
+		}
+		else if (value instanceof Boolean)
+		{
+			builder.append(((Boolean) value).booleanValue());
+		}
+		else if (value instanceof Number)
+		{
+			writeNumber(builder, (Number) value);
+		}
+		else if (value instanceof Map)
 		{
-			return jsonObjectToMap((JSONObject) object);
+			builder.append('{');
+			boolean first = true;
+			for (Object rawEntry : ((Map) value).entrySet())
+			{
+				final Map.Entry entry = (Map.Entry) rawEntry;
+				if (!first)
+				{
+					builder.append(',');
+				}
+				first = false;
+				writeString(builder, String.valueOf(entry.getKey()));
+				builder.append(':');
+				writeValue(builder, entry.getValue());
+			}
+			builder.append('}');
 		}
-		else if (object instanceof JSONArray)
+		else if (value instanceof Iterable)
 		{
-			return jsonArrayToArray((JSONArray) object);
+			builder.append('[');
+			boolean first = true;
+			for (Object item : (Iterable) value)
+			{
+				if (!first)
+				{
+					builder.append(',');
+				}
+				first = false;
+				writeValue(builder, item);
+			}
+			builder.append(']');
+		}
+		else if (value instanceof SerializedValue || value instanceof JSONObject || value instanceof JSONArray)
+		{
+			builder.append(value.toString());
 		}
 		else
 		{
-			return object;
+			writeString(builder, value.toString());
 		}
 	}
 
-	private static Map<String, Object> jsonObjectToMap(JSONObject object) throws JSONException
+	private static void writeNumber(StringBuilder builder, Number number)
 	{
-		final Map<String, Object> map = new HashMap<>();
-		final Iterator keys = object.keys();
-		while (keys.hasNext())
+		if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte)
 		{
-			String key = (String) keys.next();
-			map.put(key, jsonObjectToObject(object.get(key)));
+			builder.append(number.longValue());
+			return;
 		}
-		return map;
-	}
 
-	private static List<Object> jsonArrayToArray(JSONArray array) throws JSONException
-	{
-		final List<Object> list = new ArrayList<>();
-		for (int i = 0; i < array.length(); i++)
+		final double doubleValue = number.doubleValue();
+		if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue))
+		{
+			// Not representable in JSON
+			builder.append("null");
+		}
+		else if (doubleValue == (long) doubleValue && Math.abs(doubleValue) < 1e15)
 		{
-			list.add(jsonObjectToObject(array.get(i)));
+			builder.append((long) doubleValue);
+		}
+		else
+		{
+			builder.append(number.toString());
 		}
-		return list;
 	}
 
-	private static JSONArray fromIterable(Iterable iterable) throws JSONException
+	private static void writeString(StringBuilder builder, String string)
 	{
-		final JSONArray json = new JSONArray();
-		for (Object object : iterable)
+		builder.append('"');
+		final int length = string.length();
+		char previous = 0;
+		for (int i = 0; i < length; i++)
 		{
-			json.put(fromObject(object));
+			final char c = string.charAt(i);
+			switch (c)
+			{
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '/':
+					// Avoids "</script>" sequences in evaluated JS
+					if (previous == '<')
+					{
+						builder.append('\\');
+					}
+					builder.append(c);
+					break;
+				case '\b':
+					builder.append("\\b");
+					break;
+				case '\f':
+					builder.append("\\f");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					// Line and paragraph separators are valid JSON, but not valid in JS string literals
+					if (c < 0x20 || c == '\u2028' || c == '\u2029')
+					{
+						builder.append("\\u");
+						final String hex = Integer.toHexString(c);
+						for (int padding = hex.length(); padding < 4; padding++)
+						{
+							builder.append('0');
+						}
+						builder.append(hex);
+					}
+					else
+					{
+						builder.append(c);
+					}
+			}
+			previous = c;
 		}
-		return json;
+		builder.append('"');
 	}
 
 	/**
-	 * Transforms {@link java.util.Map} and {@link java.lang.Iterable} to {@link org.json.JSONObject} and {@link org.json.JSONArray}
-	 * If transformation is not needed, returns the original object. Useful for {@link org.json.JSONObject}.put
-	 * @param object Object to transform
-	 * @return Transformed object, if necessary
-	 * @throws JSONException
+	 * Single pass JSON reader producing {@link java.util.Map}, {@link java.util.List} and primitives
+	 * directly, with the same number typing as {@link JSONObject}: Integer when it fits, then Long, then Double.
 	 */
-	private static Object fromObject(Object object) throws JSONException
+	private static final class Reader
 	{
-		if (object instanceof Map)
+		private final String json;
+		private final int length;
+		private int position = 0;
+
+		Reader(String json) throws JSONException
 		{
-			return fromMap((Map) object);
+			if (json == null)
+			{
+				throw new JSONException("Cannot parse a null JSON string");
+			}
+			this.json = json;
+			this.length = json.length();
 		}
-		else if (object instanceof Iterable)
+
+		char peek()
 		{
-			return fromIterable((Iterable) object);
+			return position < length ? json.charAt(position) : 0;
 		}
-		else
+
+		void skipWhitespace()
+		{
+			while (position < length)
+			{
+				final char c = json.charAt(position);
+				if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+				{
+					return;
+				}
+				position++;
+			}
+		}
+
+		void expect(char c) throws JSONException
+		{
+			if (peek() != c)
+			{
+				throw syntaxError("Expected '" + c + "'");
+			}
+			position++;
+		}
+
+		JSONException syntaxError(String message)
+		{
+			return new JSONException(message + " at character " + position);
+		}
+
+		Object readValue() throws JSONException
+		{
+			skipWhitespace();
+			final char c = peek();
+			switch (c)
+			{
+				case '{':
+					return readObject();
+				case '[':
+					return readArray();
+				case '"':
+					return readString();
+				case 't':
+					readLiteral("true");
+					return Boolean.TRUE;
+				case 'f':
+					readLiteral("false");
+					return Boolean.FALSE;
+				case 'n':
+					readLiteral("null");
+					return null;
+				default:
+					if (c == '-' || (c >= '0' && c <= '9'))
+					{
+						return readNumber();
+					}
+					throw syntaxError("Unexpected character");
+			}
+		}
+
+		private Map<String, Object> readObject() throws JSONException
+		{
+			expect('{');
+			final Map<String, Object> map = new HashMap<>();
+			skipWhitespace();
+			if (peek() == '}')
+			{
+				position++;
+				return map;
+			}
+			while (true)
+			{
+				skipWhitespace();
+				if (peek() != '"')
+				{
+					throw syntaxError("Expected a string key");
+				}
+				final String key = readString();
+				skipWhitespace();
+				expect(':');
+				map.put(key, readValue());
+				skipWhitespace();
+				final char c = peek();
+				position++;
+				if (c == '}')
+				{
+					return map;
+				}
+				else if (c != ',')
+				{
+					position--;
+					throw syntaxError("Expected ',' or '}'");
+				}
+			}
+		}
+
+		private List<Object> readArray() throws JSONException
+		{
+			expect('[');
+			final List<Object> list = new ArrayList<>();
+			skipWhitespace();
+			if (peek() == ']')
+			{
+				position++;
+				return list;
+			}
+			while (true)
+			{
+				list.add(readValue());
+				skipWhitespace();
+				final char c = peek();
+				position++;
+				if (c == ']')
+				{
+					return list;
+				}
+				else if (c != ',')
+				{
+					position--;
+					throw syntaxError("Expected ',' or ']'");
+				}
+			}
+		}
+
+		private String readString() throws JSONException
+		{
+			expect('"');
+			final int start = position;
+			// Fast path: no escape sequence, substring the source directly
+			while (position < length)
+			{
+				final char c = json.charAt(position);
+				if (c == '"')
+				{
+					return json.substring(start, position++);
+				}
+				if (c == '\\')
+				{
+					break;
+				}
+				position++;
+			}
+
+			final StringBuilder builder = new StringBuilder(position - start + 16);
+			builder.append(json, start, position);
+			while (position < length)
+			{
+				final char c = json.charAt(position++);
+				if (c == '"')
+				{
+					return builder.toString();
+				}
+				if (c != '\\')
+				{
+					builder.append(c);
+					continue;
+				}
+				if (position >= length)
+				{
+					break;
+				}
+				final char escaped = json.charAt(position++);
+				switch (escaped)
+				{
+					case 'b':
+						builder.append('\b');
+						break;
+					case 'f':
+						builder.append('\f');
+						break;
+					case 'n':
+						builder.append('\n');
+						break;
+					case 'r':
+						builder.append('\r');
+						break;
+					case 't':
+						builder.append('\t');
+						break;
+					case 'u':
+						if (position + 4 > length)
+						{
+							throw syntaxError("Truncated unicode escape");
+						}
+						try
+						{
+							builder.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+						}
+						catch (NumberFormatException e)
+						{
+							throw syntaxError("Invalid unicode escape");
+						}
+						position += 4;
+						break;
+					default:
+						builder.append(escaped);
+				}
+			}
+			throw syntaxError("Unterminated string");
+		}
+
+		private Object readNumber() throws JSONException
+		{
+			final int start = position;
+			boolean isDecimal = false;
+			while (position < length)
+			{
+				final char c = json.charAt(position);
+				if (c == '.' || c == 'e' || c == 'E')
+				{
+					isDecimal = true;
+				}
+				else if (c != '-' && c != '+' && (c < '0' || c > '9'))
+				{
+					break;
+				}
+				position++;
+			}
+
+			final String number = json.substring(start, position);
+			try
+			{
+				if (!isDecimal)
+				{
+					final long longValue = Long.parseLong(number);
+					if (longValue == (int) longValue)
+					{
+						return (int) longValue;
+					}
+					return longValue;
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				// Too big for a long, fall back on double
+			}
+
+			try
+			{
+				return Double.parseDouble(number);
+			}
+			catch (NumberFormatException e)
+			{
+				throw syntaxError("Invalid number '" + number + "'");
+			}
+		}
+
+		private void readLiteral(String literal) throws JSONException
 		{
-			return object;
+			if (!json.startsWith(literal, position))
+			{
+				throw syntaxError("Unexpected character");
+			}
+			position += literal.length();
 		}
 	}
-}
\ No newline at end of file
+}
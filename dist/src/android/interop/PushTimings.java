@@ -0,0 +1,112 @@
+package com.batch.cordova.android.interop;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight timings of the push handling pipeline, per stage, for debugging purposes.
+ * <p>
+ * Recording a duration only updates a few atomic counters. The timings can be read
+ * using the {@link Action#PUSH_DEBUG_GET_TIMINGS} bridge action.
+ */
+public final class PushTimings {
+    public enum Stage {
+        /**
+         * Total time spent handling a push in the push service
+         */
+        SERVICE("service"),
+
+        /**
+         * Starting the SDK from the push service, when JavaScript didn't start it yet
+         */
+        SDK_START("sdkStart"),
+
+        SHOULD_DISPLAY("shouldDisplay"),
+
+        PAYLOAD_PARSE("payloadParse"),
+
+        /**
+         * Displaying the notification, or forwarding it to the foreground activity
+         */
+        DISPLAY("display"),
+
+        /**
+         * Building the event sent to JavaScript
+         */
+        SERIALIZE("serialize"),
+
+        /**
+         * Sending the event to JavaScript, or journaling it
+         */
+        DELIVERY("delivery");
+
+        private final String name;
+
+        private final AtomicLong count = new AtomicLong(0);
+
+        private final AtomicLong totalNanos = new AtomicLong(0);
+
+        private final AtomicLong maxNanos = new AtomicLong(0);
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+
+    private PushTimings() {
+    }
+
+    /**
+     * Get the start time to give to {@link #record(Stage, long)}
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record that a stage ended now
+     *
+     * @param startTime Value previously returned by {@link #start()}
+     */
+    public static void record(@NonNull Stage stage, long startTime) {
+        final long duration = System.nanoTime() - startTime;
+        stage.count.incrementAndGet();
+        stage.totalNanos.addAndGet(duration);
+
+        long max;
+        do {
+            max = stage.maxNanos.get();
+        } while (duration > max && !stage.maxNanos.compareAndSet(max, duration));
+    }
+
+    /**
+     * Get the count, average and maximum duration (in microseconds) of each stage that has been recorded at least once
+     */
+    @NonNull
+    static Map<String, Object> getSnapshot() {
+        final Map<String, Object> snapshot = new HashMap<>();
+        for (Stage stage : Stage.values()) {
+            final long count = stage.count.get();
+            if (count == 0) {
+                continue;
+            }
+            final Map<String, Object> stageSnapshot = new HashMap<>();
+            stageSnapshot.put("count", count);
+            stageSnapshot.put("averageMicros", stage.totalNanos.get() / count / 1000);
+            stageSnapshot.put("maxMicros", stage.maxNanos.get() / 1000);
+            snapshot.put(stage.name, stageSnapshot);
+        }
+        return snapshot;
+    }
+
+    static void reset() {
+        for (Stage stage : Stage.values()) {
+            stage.count.set(0);
+            stage.totalNanos.set(0);
+            stage.maxNanos.set(0);
+        }
+    }
+}
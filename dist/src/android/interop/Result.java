@@ -5,7 +5,9 @@ package com.batch.cordova.android.interop;
  */
 public enum Result
 {
-	BRIDGE_FAILURE("onBridgeFailure");
+	BRIDGE_FAILURE("onBridgeFailure"),
+	INBOX_FETCHER_EVICTED("onInboxFetcherEvicted"),
+	USER_DATA_SNAPSHOT("onUserDataSnapshot");
 
     /**
      * Result action name
@@ -0,0 +1,150 @@
+package com.batch.cordova.android.interop;
+
+import androidx.annotation.NonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache for the user data read by the bridge: getters and fetched attributes/tag collections.
+ * <p>
+ * Values are loaded on first use and kept until {@link #invalidate()} is called, which the bridge does
+ * whenever an action may have changed them (profile edition, identify, installation data clearing, opt-in/out).
+ * Concurrent reads of a value that is being loaded share the same pending promise, so the SDK is only
+ * asked once. Failed loads are not cached.
+ * <p>
+ * Resolved maps are serialized once, so cache hits can be sent to the plugin as is.
+ * <p>
+ * The SDK applies user data edits asynchronously, without telling when they are done: fetched values
+ * loaded shortly after an edit may not include it yet. They are delivered, but not cached, for
+ * {@link #EDIT_APPLY_TIME_MS} after {@link #invalidateForEdit()}.
+ */
+class UserDataCache {
+    /**
+     * How long an edit may take to be applied by the SDK, in milliseconds
+     */
+    static final long EDIT_APPLY_TIME_MS = 2000;
+
+    enum Key {
+        INSTALLATION_ID(false),
+        LANGUAGE(false),
+        REGION(false),
+        IDENTIFIER(false),
+        ATTRIBUTES(true),
+        TAGS(true);
+
+        /**
+         * Whether the value is fetched from the SDK's data, which edits are asynchronously applied to
+         */
+        final boolean fetched;
+
+        Key(boolean fetched) {
+            this.fetched = fetched;
+        }
+    }
+
+    interface Loader {
+        @NonNull
+        SimplePromise<Object> load();
+    }
+
+    interface Clock {
+        long nanoTime();
+    }
+
+    private final Map<Key, SimplePromise<Object>> entries = new EnumMap<>(Key.class);
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    private final Clock clock;
+
+    // Guarded by this
+    private boolean hasEdit = false;
+    private long lastEditTime;
+
+    UserDataCache() {
+        this(System::nanoTime);
+    }
+
+    UserDataCache(@NonNull Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Get a cached value, or load it if it isn't cached or being loaded
+     */
+    @NonNull
+    SimplePromise<Object> get(@NonNull Key key, @NonNull Loader loader) {
+        final SimplePromise<Object> cachedPromise;
+        synchronized (this) {
+            SimplePromise<Object> existingPromise = entries.get(key);
+            if (existingPromise != null && existingPromise.getStatus() != SimplePromise.Status.REJECTED) {
+                hitCount.incrementAndGet();
+                return existingPromise;
+            }
+
+            missCount.incrementAndGet();
+            cachedPromise = new SimplePromise<>();
+            if (!key.fetched || !isEditPending()) {
+                entries.put(key, cachedPromise);
+            }
+        }
+
+        // Load outside of the lock: listeners may be called synchronously
+        SimplePromise<Object> loadedPromise;
+        try {
+            loadedPromise = loader.load();
+        } catch (Exception e) {
+            loadedPromise = SimplePromise.rejected(e);
+        }
+
+        loadedPromise.then(value -> {
+            cachedPromise.resolve(value instanceof Map ? JSONHelper.SerializedValue.of(value) : value);
+        });
+        loadedPromise.catchException(e -> {
+            synchronized (this) {
+                if (entries.get(key) == cachedPromise) {
+                    entries.remove(key);
+                }
+            }
+            cachedPromise.reject(e);
+        });
+
+        return cachedPromise;
+    }
+
+    /**
+     * Drop all cached values. Values being loaded will still be delivered to the callers waiting for them,
+     * but won't be cached.
+     */
+    synchronized void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Drop all cached values after an edit of the user data, and don't cache the fetched values loaded
+     * until it is likely to have been applied
+     */
+    synchronized void invalidateForEdit() {
+        entries.clear();
+        hasEdit = true;
+        lastEditTime = clock.nanoTime();
+    }
+
+    // Must be called with the lock held
+    private boolean isEditPending() {
+        return hasEdit && clock.nanoTime() - lastEditTime < TimeUnit.MILLISECONDS.toNanos(EDIT_APPLY_TIME_MS);
+    }
+
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    long getMissCount() {
+        return missCount.get();
+    }
+}
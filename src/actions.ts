@@ -70,4 +70,5 @@ export enum ProfileAttributeOperation {
 
 export enum Internal {
   SetupCallback = "_setupCallback",
+  Batch = "batch",
 }
@@ -8,6 +8,10 @@ import { PushModule } from "./modules/push";
 import { UserModule } from "./modules/user";
 import Platform from "./platform";
 import { ProfileModule } from "./modules/profile";
+import {
+  expectUserDataSnapshot,
+  invalidateUserDataSnapshot,
+} from "./modules/user/userDataSnapshot";
 
 export class Batch implements BatchSDK.Batch {
   public push: PushModule;
@@ -47,6 +51,7 @@ export class Batch implements BatchSDK.Batch {
     // Use a base config
     const baseConfig: BatchSDK.Config = {
       androidAPIKey: null,
+      androidLogLevel: undefined,
       migrations: {},
       iOSAPIKey: null,
     };
@@ -84,23 +89,28 @@ export class Batch implements BatchSDK.Batch {
     sendToBridge(null, CoreActions.SetConfig, [
       {
         APIKey: apiKey,
+        logLevel: this._config.androidLogLevel,
         migrations: this._config.migrations,
       },
     ]);
 
+    expectUserDataSnapshot();
     sendToBridge(null, CoreActions.Start, null);
     return;
   }
 
   public optIn(): void {
+    invalidateUserDataSnapshot();
     sendToBridge(null, CoreActions.OptIn, null);
   }
 
   public optOut(): void {
+    invalidateUserDataSnapshot();
     sendToBridge(null, CoreActions.OptOut, null);
   }
 
   public optOutAndWipeData(): void {
+    invalidateUserDataSnapshot();
     sendToBridge(null, CoreActions.OptOutWipeData, null);
   }
 
@@ -0,0 +1,120 @@
+import { Internal as InternalActions } from "./actions";
+import { Consts } from "./consts";
+
+type BridgeCallback = ((result: string) => void) | null;
+
+interface IQueuedCall {
+  callback: BridgeCallback;
+  method: string;
+  args: unknown[] | null;
+}
+
+/**
+ * Coalesces bridge calls made in the same tick into a single "batch" bridge call.
+ *
+ * Queued calls are flushed on the next microtask, or as soon as the queue reaches its maximum size.
+ * The native side dispatches each call to the lane it would have used on its own, in order, and
+ * replies with an array of results, which are dispatched to each call's callback just like a single
+ * call would have been.
+ */
+export class BridgeCallQueue {
+  private _queue: IQueuedCall[] = []; // tslint:disable-line
+  private _flushScheduled = false; // tslint:disable-line
+  private _maxSize: number; // tslint:disable-line
+
+  constructor(maxSize: number = Consts.BridgeQueueMaxSize) {
+    this._maxSize = maxSize;
+  }
+
+  public enqueue(
+    callback: BridgeCallback,
+    method: string,
+    args: unknown[] | null
+  ): void {
+    this._queue.push({ callback, method, args });
+
+    if (this._queue.length >= this._maxSize) {
+      this.flush();
+    } else if (!this._flushScheduled) {
+      this._flushScheduled = true;
+      Promise.resolve().then(() => {
+        this._flushScheduled = false;
+        this.flush();
+      });
+    }
+  }
+
+  /**
+   * Sends all queued calls to the native side now.
+   * Must be called before any call that bypasses the queue, so that the call order is kept.
+   */
+  public flush(): void {
+    const calls = this._queue;
+    if (calls.length === 0) {
+      return;
+    }
+    this._queue = [];
+
+    if (calls.length === 1) {
+      const call = calls[0];
+      execBridgeCall(call.callback, call.method, call.args);
+      return;
+    }
+
+    execBridgeCall(
+      (value) => {
+        let results: unknown = null;
+        try {
+          results = value ? JSON.parse(value) : null;
+        } catch (e) {
+          // Handled below
+        }
+
+        if (!Array.isArray(results) || results.length !== calls.length) {
+          // Should not happen: make sure that no caller waits forever
+          results = [];
+        }
+
+        calls.forEach((call, index) => {
+          if (call.callback) {
+            const result = (results as unknown[])[index];
+            call.callback(
+              (result === null || result === undefined
+                ? undefined
+                : result) as string
+            );
+          }
+        });
+      },
+      InternalActions.Batch,
+      [
+        {
+          calls: calls.map((call) => ({
+            action: call.method,
+            parameters: call.args != null ? call.args[0] : {},
+          })),
+        },
+      ]
+    );
+  }
+}
+
+export function execBridgeCall(
+  callback: BridgeCallback,
+  method: string,
+  args: unknown[] | null
+): void {
+  // The Bridge never fails as far as Cordova is concerned, but the callback can have a negative response
+  // It will need to be handled on a per-case basis
+  cordova.exec(
+    (value) => {
+      if (callback) {
+        callback(value === null ? undefined : value);
+      }
+    },
+    () => {},
+    Consts.BatchPluginName,
+    "BA_" + method,
+    args != null ? args : [{}]
+  );
+}
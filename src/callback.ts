@@ -1,6 +1,11 @@
 import { Internal as InternalActions } from "./actions";
 import { Consts } from "./consts";
 import { isString, writeBatchLog } from "./helpers";
+import { markInboxFetcherEvicted } from "./modules/inbox/inboxFetcher";
+import {
+  IUserDataSnapshot,
+  setUserDataSnapshot,
+} from "./modules/user/userDataSnapshot";
 
 export enum CallbackAction {
   Log = "_log",
@@ -8,6 +13,9 @@ export enum CallbackAction {
   DispatchPush = "_dispatchPush",
   DispatchMessagingEvent = "_dispatchMessagingEvent",
   OnBridgeFailure = "onBridgeFailure",
+  OnInboxFetcherEvicted = "onInboxFetcherEvicted",
+  OnUserDataSnapshot = "onUserDataSnapshot",
+  ReplayEvents = "_replayEvents",
 }
 
 interface ICallbackDispatchPushData {
@@ -24,7 +32,9 @@ interface ICallbackDispatchMessagingEventData {
 
 interface ICallbackLogData {
   action: CallbackAction.Log;
-  message: string;
+  message?: string;
+  messages?: string[];
+  droppedCount?: number;
 }
 
 interface ICallbackEvalData {
@@ -37,11 +47,37 @@ interface ICallbackOnBridgeFailureData {
   result: string;
 }
 
+interface ICallbackOnInboxFetcherEvictedData {
+  action: CallbackAction.OnInboxFetcherEvicted;
+  result: { fetcherID?: string };
+}
+
+interface ICallbackOnUserDataSnapshotData {
+  action: CallbackAction.OnUserDataSnapshot;
+  result: IUserDataSnapshot;
+}
+
+// Events that the native side couldn't deliver when they happened, in order
+interface ICallbackReplayEventsData {
+  action: CallbackAction.ReplayEvents;
+  events: CallbackData[];
+}
+
+type CallbackData =
+  | ICallbackDispatchPushData
+  | ICallbackDispatchMessagingEventData
+  | ICallbackLogData
+  | ICallbackEvalData
+  | ICallbackOnBridgeFailureData
+  | ICallbackOnInboxFetcherEvictedData
+  | ICallbackOnUserDataSnapshotData
+  | ICallbackReplayEventsData;
+
 export class CallbackHandler {
   public setup(): void {
     // Don't call sendToBridge because we don't want to have the BA_ prefix
     cordova.exec(
-      this.handleCallback,
+      (callbackData: CallbackData) => this.handleCallback(callbackData),
       () => {},
       Consts.BatchPluginName,
       InternalActions.SetupCallback,
@@ -49,14 +85,7 @@ export class CallbackHandler {
     );
   }
 
-  private handleCallback(
-    callbackData:
-      | ICallbackDispatchPushData
-      | ICallbackDispatchMessagingEventData
-      | ICallbackLogData
-      | ICallbackEvalData
-      | ICallbackOnBridgeFailureData
-  ) {
+  private handleCallback(callbackData: CallbackData) {
     if (callbackData.action !== CallbackAction.Log) {
       writeBatchLog(true, "Got callback from Batch", callbackData);
     }
@@ -131,7 +160,22 @@ export class CallbackHandler {
       case CallbackAction.Log:
         // Don't use writeBatchLog on purpose
         if (console && console.log) {
-          console.log(callbackData.message); // tslint:disable-line
+          if (isString(callbackData.message)) {
+            console.log(callbackData.message); // tslint:disable-line
+          }
+          // Native logs can be sent in batches
+          if (Array.isArray(callbackData.messages)) {
+            callbackData.messages.forEach((message) => {
+              console.log(message); // tslint:disable-line
+            });
+          }
+          if (callbackData.droppedCount) {
+            console.log(
+              "[Batch] " +
+                callbackData.droppedCount +
+                " native log lines were dropped"
+            ); // tslint:disable-line
+          }
         }
         break;
       case CallbackAction.Eval:
@@ -143,6 +187,21 @@ export class CallbackHandler {
         // todo: check that const's value
         writeBatchLog(false, "Internal Bridge error", callbackData.result);
         break;
+      case CallbackAction.OnInboxFetcherEvicted:
+        if (callbackData.result && isString(callbackData.result.fetcherID)) {
+          markInboxFetcherEvicted(callbackData.result.fetcherID);
+        }
+        break;
+      case CallbackAction.OnUserDataSnapshot:
+        if (typeof callbackData.result === "object" && callbackData.result) {
+          setUserDataSnapshot(callbackData.result);
+        }
+        break;
+      case CallbackAction.ReplayEvents:
+        if (Array.isArray(callbackData.events)) {
+          callbackData.events.forEach((event) => this.handleCallback(event));
+        }
+        break;
     }
   }
 }
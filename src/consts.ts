@@ -3,6 +3,7 @@ export const Consts = {
   AttributeStringMaxLength: 64,
   AttributeStringArrayMaxSize: 25,
   BatchPluginName: "Batch",
+  BridgeQueueMaxSize: 50,
   DevelopmentMode: true,
   EventDataStringMaxLength: 64,
 };
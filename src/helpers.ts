@@ -1,6 +1,26 @@
 import * as Actions from "./actions";
+import { BridgeCallQueue, execBridgeCall } from "./bridgeQueue";
 import { Consts } from "./consts";
 import { BatchEventAttributes } from "./modules/profile/batchEventAttributes";
+import Platform from "./platform";
+
+// Calls made in the same tick are sent to the native side in a single bridge crossing.
+// Only supported on Android.
+const bridgeQueue = new BridgeCallQueue();
+
+// Actions that are never batched:
+// - the ones that the native plugin handles itself before forwarding them to the bridge,
+//   which batched calls skip
+// - network-bound ones: a batch only replies once all of its calls are done, so they would
+//   hold back the other calls made in the same tick
+const unbatchableMethods: string[] = [
+  Actions.Core.SetConfig,
+  Actions.Core.Start,
+  Actions.Inbox.FetchNewNotifications,
+  Actions.Inbox.FetchNextPage,
+  Actions.User.FetchAttributes,
+  Actions.User.FetchTags,
+];
 
 export function writeBatchLog(debug: boolean, ...message: unknown[]): void {
   const args = (["[Batch]"] as unknown[]).concat(message);
@@ -70,19 +90,17 @@ export function sendToBridge(
     | Actions.Internal,
   args: unknown[] | null
 ): void {
-  // The Bridge never fails as far as Cordova is concerned, but the callback can have a negative response
-  // It will need to be handled on a per-case basis
-  cordova.exec(
-    (value) => {
-      if (callback) {
-        callback(value === null ? undefined : value);
-      }
-    },
-    () => {},
-    Consts.BatchPluginName,
-    "BA_" + method,
-    args != null ? args : [{}]
-  );
+  if (
+    !Platform.isCurrent(Platform.Android) ||
+    unbatchableMethods.indexOf(method) !== -1
+  ) {
+    // Keep the call order: anything queued before this call must be sent first
+    bridgeQueue.flush();
+    execBridgeCall(callback, method, args);
+    return;
+  }
+
+  bridgeQueue.enqueue(callback, method, args);
 }
 
 // Promise version of sendToBridge that always resolves a Promise
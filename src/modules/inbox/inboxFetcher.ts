@@ -6,6 +6,10 @@ import { BatchInboxFetchResult } from "./inboxFetchResult";
 
 interface BridgeNotificationListResponse {
   notifications?: [{ [key: string]: unknown }];
+  // Android only: see _applyBridgeNotificationChanges
+  cursor?: number;
+  full?: boolean;
+  deletedIDs?: string[];
 }
 
 interface BridgeNotificationPageResponse {
@@ -13,19 +17,38 @@ interface BridgeNotificationPageResponse {
   endReached: boolean;
 }
 
+// IDs of the fetchers that the native side released on its own:
+// it bounds how many fetchers it retains, and evicts idle ones
+const evictedFetcherIDs: { [fetcherID: string]: boolean } = {};
+
+export function markInboxFetcherEvicted(fetcherID: string): void {
+  evictedFetcherIDs[fetcherID] = true;
+}
+
 abstract class BatchInboxFetcherBaseImplementation
   implements BatchSDK.InboxFetcher {
   private _disposed = false;
   protected _fetcherID?: string;
 
+  // Notifications returned by the last getAllFetchedNotifications call, and the native cursor they match
+  private _fetchedNotifications: BatchSDK.InboxNotification[] = [];
+  private _fetchedNotificationsCursor?: number;
+
   abstract init(maxPageSize?: number, limit?: number): Promise<void>;
 
   async getAllFetchedNotifications(): Promise<BatchSDK.InboxNotification[]> {
     await this._throwIfDisposed();
 
+    const parameters: {
+      [key: string]: unknown;
+    } = this._makeBaseBridgeParameters();
+    if (this._fetchedNotificationsCursor !== undefined) {
+      parameters["cursor"] = this._fetchedNotificationsCursor;
+    }
+
     const rawResponse = await invokeModernBridge(
       InboxAction.GetFetchedNotifications,
-      this._makeBaseBridgeParameters()
+      parameters
     );
 
     if (!rawResponse) {
@@ -37,7 +60,11 @@ abstract class BatchInboxFetcherBaseImplementation
       throw new Error("Internal Error: Malformed inbox bridge response (-8)");
     }
 
-    return this._parseBridgeNotifications(castedResponse.notifications);
+    this._applyBridgeNotificationChanges(castedResponse);
+
+    return this._fetchedNotifications.map((notification) => ({
+      ...notification,
+    }));
   }
 
   async fetchNewNotifications(): Promise<BatchSDK.InboxFetchResult> {
@@ -127,7 +154,10 @@ abstract class BatchInboxFetcherBaseImplementation
 
   dispose(): void {
     this._disposed = true;
-    if (this._fetcherID !== undefined) {
+    if (this._fetcherID !== undefined && evictedFetcherIDs[this._fetcherID]) {
+      // Already released natively
+      delete evictedFetcherIDs[this._fetcherID];
+    } else if (this._fetcherID !== undefined) {
       invokeModernBridge(
         InboxAction.ReleaseFetcher,
         this._makeBaseBridgeParameters()
@@ -164,9 +194,67 @@ abstract class BatchInboxFetcherBaseImplementation
         )
       );
     }
+    if (this._fetcherID !== undefined && evictedFetcherIDs[this._fetcherID]) {
+      return Promise.reject(
+        new Error(
+          "EvictedInboxError: This BatchInboxFetcher has been released by the native SDK, as too many fetchers were alive or it was unused for too long. Please create a new fetcher."
+        )
+      );
+    }
     return Promise.resolve();
   }
 
+  // The native side may only send what changed since the cursor we gave it: in that case, "full" is false
+  // and updated notifications replace the ones we have with the same identifier.
+  // Responses without a cursor always contain all notifications.
+  private _applyBridgeNotificationChanges(
+    response: BridgeNotificationListResponse
+  ): void {
+    const notifications = this._parseBridgeNotifications(
+      response.notifications as [{ [key: string]: unknown }]
+    );
+
+    if (!isNumber(response.cursor) || response.full !== false) {
+      this._fetchedNotifications = notifications;
+    } else {
+      const deletedIDs = Array.isArray(response.deletedIDs)
+        ? response.deletedIDs
+        : [];
+      const changedNotifications: {
+        [identifier: string]: BatchSDK.InboxNotification;
+      } = {};
+      notifications.forEach((notification) => {
+        changedNotifications[notification.identifier] = notification;
+      });
+
+      const mergedNotifications: BatchSDK.InboxNotification[] = [];
+      this._fetchedNotifications.forEach((notification) => {
+        if (deletedIDs.indexOf(notification.identifier) !== -1) {
+          return;
+        }
+        const changedNotification =
+          changedNotifications[notification.identifier];
+        if (changedNotification) {
+          delete changedNotifications[notification.identifier];
+          mergedNotifications.push(changedNotification);
+        } else {
+          mergedNotifications.push(notification);
+        }
+      });
+      // What's left was added since the cursor, like a new page
+      notifications.forEach((notification) => {
+        if (changedNotifications[notification.identifier]) {
+          mergedNotifications.push(notification);
+        }
+      });
+      this._fetchedNotifications = mergedNotifications;
+    }
+
+    this._fetchedNotificationsCursor = isNumber(response.cursor)
+      ? response.cursor
+      : undefined;
+  }
+
   protected _parseBridgeNotifications(
     response: [{ [key: string]: unknown }]
   ): BatchSDK.InboxNotification[] {
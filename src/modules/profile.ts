@@ -3,6 +3,7 @@ import { sendToBridge, sendToBridgePromise, writeBatchLog } from "../helpers";
 
 import { BatchEventAttributes } from "./profile/batchEventAttributes";
 import { BatchProfileAttributeEditor } from "./profile/profileAttributeEditor";
+import { invalidateUserDataSnapshot } from "./user/userDataSnapshot";
 import { BatchSDK } from "../../types";
 
 export class ProfileModule implements BatchSDK.ProfileModule {
@@ -20,6 +21,7 @@ export class ProfileModule implements BatchSDK.ProfileModule {
       );
       return;
     }
+    invalidateUserDataSnapshot();
     sendToBridge(null, Profile.Identify, [{ custom_user_id: identifier }]);
   }
 
@@ -8,6 +8,7 @@ import {
   sendToBridge,
   writeBatchLog,
 } from "../../helpers";
+import { invalidateUserDataSnapshot } from "../user/userDataSnapshot";
 
 interface IOperation {
   operation: ProfileAttributeOperation;
@@ -342,6 +343,7 @@ export class BatchProfileAttributeEditor
   }
 
   public save(): this {
+    invalidateUserDataSnapshot();
     sendToBridge(null, Profile.Edit, [
       {
         operations: this._operationQueue,
@@ -7,6 +7,11 @@ import {
 
 import { BatchSDK } from "../../types";
 import { BatchUserAttribute } from "./user/userAttributes";
+import {
+  getUserDataSnapshot,
+  invalidateUserDataSnapshot,
+  IUserDataSnapshot,
+} from "./user/userDataSnapshot";
 
 export enum BatchUserAttributeType {
   STRING = 1,
@@ -25,27 +30,38 @@ export class UserModule implements BatchSDK.UserModule {
   }
 
   public getInstallationID(): Promise<undefined | string> {
-    return sendToBridgePromise(UserAction.GetInstallationID, null);
+    return (
+      readSnapshotString("installationID") ??
+      sendToBridgePromise(UserAction.GetInstallationID, null)
+    );
   }
 
   public getLanguage(): Promise<undefined | string> {
-    return sendToBridgePromise(UserAction.GetLanguage, null);
+    return (
+      readSnapshotString("language") ??
+      sendToBridgePromise(UserAction.GetLanguage, null)
+    );
   }
 
   public getRegion(): Promise<undefined | string> {
-    return sendToBridgePromise(UserAction.GetRegion, null);
+    return (
+      readSnapshotString("region") ??
+      sendToBridgePromise(UserAction.GetRegion, null)
+    );
   }
 
   public getIdentifier(): Promise<undefined | string> {
-    return sendToBridgePromise(UserAction.GetIdentifier, null);
+    return (
+      readSnapshotString("identifier") ??
+      sendToBridgePromise(UserAction.GetIdentifier, null)
+    );
   }
 
   public async getAttributes(): Promise<{
     [key: string]: BatchSDK.BatchUserAttribute;
   }> {
-    const response = (await invokeModernBridge(
-      UserAction.FetchAttributes
-    )) as void | {
+    const response = (getUserDataSnapshot()?.attributes ??
+      (await invokeModernBridge(UserAction.FetchAttributes))) as void | {
       attributes: { [key: string]: { type: string; value: unknown } };
     };
 
@@ -100,9 +116,10 @@ export class UserModule implements BatchSDK.UserModule {
   }
 
   public async getTagCollections(): Promise<{ [key: string]: string[] }> {
-    const response = (await invokeModernBridge(
-      UserAction.FetchTags
-    )) as void | { tagCollections: { [key: string]: string[] } };
+    const response = (getUserDataSnapshot()?.tagCollections ??
+      (await invokeModernBridge(UserAction.FetchTags))) as void | {
+      tagCollections: { [key: string]: string[] };
+    };
 
     if (!response) {
       throw new Error("Internal error: Failed to fetch tag collections");
@@ -112,6 +129,22 @@ export class UserModule implements BatchSDK.UserModule {
   }
 
   public clearInstallationData(): void {
+    invalidateUserDataSnapshot();
     sendToBridge(null, UserAction.ClearInstallationData, null);
   }
 }
+
+// Returns undefined if the value isn't in the snapshot, and should be read from the bridge
+function readSnapshotString(
+  key: "installationID" | "language" | "region" | "identifier"
+): Promise<undefined | string> | undefined {
+  const snapshot: IUserDataSnapshot | null = getUserDataSnapshot();
+  if (
+    snapshot === null ||
+    !Object.prototype.hasOwnProperty.call(snapshot, key)
+  ) {
+    return undefined;
+  }
+  const value = snapshot[key];
+  return Promise.resolve(typeof value === "string" ? value : undefined);
+}
@@ -0,0 +1,44 @@
+/**
+ * Snapshot of the user data, sent by the native side when the SDK starts (Android only).
+ *
+ * It allows the user module to answer reads without going through the bridge, until an action that may
+ * change the data invalidates it. Once invalidated, reads go back to the bridge.
+ */
+export interface IUserDataSnapshot {
+  installationID?: string | null;
+  language?: string | null;
+  region?: string | null;
+  identifier?: string | null;
+  // Same responses as the fetch actions
+  attributes?: unknown;
+  tagCollections?: unknown;
+}
+
+let currentSnapshot: IUserDataSnapshot | null = null;
+let generation = 0;
+let expectedGeneration: number | null = null;
+
+/**
+ * Should be called when starting the SDK: the snapshot that the native side will send
+ * is only accepted if nothing invalidated the user data in the meantime.
+ */
+export function expectUserDataSnapshot(): void {
+  expectedGeneration = generation;
+}
+
+export function setUserDataSnapshot(snapshot: IUserDataSnapshot): void {
+  if (expectedGeneration !== generation) {
+    return;
+  }
+  expectedGeneration = null;
+  currentSnapshot = snapshot;
+}
+
+export function invalidateUserDataSnapshot(): void {
+  generation++;
+  currentSnapshot = null;
+}
+
+export function getUserDataSnapshot(): IUserDataSnapshot | null {
+  return currentSnapshot;
+}
@@ -36,8 +36,23 @@ export declare namespace BatchSDK {
      * Profile migrations related configuration
      */
     migrations?: MigrationConfig;
+
+    /**
+     * Minimum level of the native Android SDK logs forwarded to the JavaScript console.
+     * Logs are forwarded in batches, a few times per second.
+     * Use "none" to stop forwarding native logs. Default: "verbose".
+     */
+    androidLogLevel?: NativeLogLevel;
   }
 
+  type NativeLogLevel =
+    | "verbose"
+    | "debug"
+    | "info"
+    | "warning"
+    | "error"
+    | "none";
+
   type BatchEventCallback = (
     eventName: string,
     parameters: { [key: string]: unknown }